@@ -0,0 +1,192 @@
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class AddressIndex remembers which google place ID each typed address turned out to be.
+ * Users write the same place many ways, so once an address is known the program can ask google by place ID,
+ * skip geocoding, and share cached routes and place details between the different spellings.
+ * Place IDs can change over time, so an address is geocoded again once its place ID expires.
+ */
+public class AddressIndex {
+    public final static String PLACE_ID_PREFIX = "place_id:";
+    public final static long DEFAULT_TTL_DAY = 90;
+    private final static long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    private HashMap<String, Alias> aliases;
+    private File file;
+    private long ttlMillis;
+    private boolean isChanged = false;
+
+    /**
+     * Constructor for the class with default time to live.
+     *
+     * @param filePath file path that save old addresses
+     */
+    public AddressIndex(String filePath) {
+        this(filePath, DEFAULT_TTL_DAY);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param filePath file path that save old addresses
+     * @param ttlDay   days a place ID stays valid
+     */
+    public AddressIndex(String filePath, long ttlDay) {
+        aliases = new HashMap<>();
+        ttlMillis = ttlDay * MILLIS_PER_DAY;
+        file = new File(filePath);
+        if (file.exists()) {
+            restoreFromFile();
+        }
+    }
+
+    /**
+     * Normalizes an address so spacing, letter cases and punctuation do not matter.
+     *
+     * @param address raw address
+     * @return normalized address
+     */
+    public static String normalize(String address) {
+        return address.toLowerCase().replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /**
+     * Gets the place ID of an address.
+     *
+     * @param address raw address
+     * @return the place ID or null if the address was never seen or its place ID expired
+     */
+    public synchronized String getPlaceId(String address) {
+        String key = normalize(address);
+        Alias alias = aliases.get(key);
+        if (alias == null || alias.expireAt <= System.currentTimeMillis()) {
+            if (alias != null) {
+                aliases.remove(key);
+            }
+            return null;
+        }
+        return alias.placeId;
+    }
+
+    /**
+     * Gets what to send to google for an address, the place ID when it is known or the address itself.
+     *
+     * @param address raw address
+     * @return place_id:ID or the address
+     */
+    public String toQuery(String address) {
+        String placeId = getPlaceId(address);
+        return placeId == null ? address : PLACE_ID_PREFIX + placeId;
+    }
+
+    /**
+     * Remembers the place ID of an address. The index is not saved until saveIfChanged is called,
+     * so the aliases learned from one trip are saved in one write.
+     *
+     * @param address raw address
+     * @param placeId google place ID
+     */
+    public synchronized void learn(String address, String placeId) {
+        if (address == null || placeId == null || address.startsWith(PLACE_ID_PREFIX)) {
+            return;
+        }
+        String key = normalize(address);
+        if (key.length() == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Alias alias = aliases.get(key);
+        if (alias == null || alias.expireAt <= now || !placeId.equals(alias.placeId)) {
+            aliases.put(key, new Alias(placeId, now + ttlMillis));
+            isChanged = true;
+        }
+    }
+
+    /**
+     * Accessor for the number of known addresses.
+     *
+     * @return number of addresses
+     */
+    public synchronized int size() {
+        return aliases.size();
+    }
+
+    /**
+     * Saves all addresses to file if any was learned since the last save.
+     */
+    public synchronized void saveIfChanged() {
+        if (isChanged) {
+            saveToFile();
+        }
+    }
+
+    /**
+     * Saves all addresses to file. They are written next to the old file and renamed in place,
+     * so a crash while writing keeps the old index instead of a broken one.
+     */
+    public synchronized void saveToFile() {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            FileOutputStream fileOut = new FileOutputStream(tempFile);
+            ObjectOutputStream out = new ObjectOutputStream(fileOut);
+            out.writeObject(aliases);
+            out.close();
+            fileOut.close();
+            if (!tempFile.renameTo(file)) {
+                file.delete();
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException("Can not replace " + file);
+                }
+            }
+            isChanged = false;
+        } catch (IOException i) {
+            i.printStackTrace();
+        }
+    }
+
+    /**
+     * Restores addresses from file, expired ones and entries of an unknown type are dropped.
+     * Place IDs saved without a time to live by older versions start a new one.
+     */
+    private void restoreFromFile() {
+        Object saved;
+        try {
+            FileInputStream fileInput = new FileInputStream(file);
+            ObjectInputStream inputStream = new ObjectInputStream(fileInput);
+            saved = inputStream.readObject();
+            inputStream.close();
+            fileInput.close();
+        } catch (Exception e) {
+            return;
+        }
+        if (!(saved instanceof Map)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) saved).entrySet()) {
+            if (!(entry.getKey() instanceof String)) {
+                continue;
+            }
+            if (entry.getValue() instanceof Alias && ((Alias) entry.getValue()).expireAt > now) {
+                aliases.put((String) entry.getKey(), (Alias) entry.getValue());
+            } else if (entry.getValue() instanceof String) {
+                aliases.put((String) entry.getKey(), new Alias((String) entry.getValue(), now + ttlMillis));
+            }
+        }
+    }
+
+    /**
+     * Place ID of an address with the time it stops being valid.
+     */
+    private static class Alias implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String placeId;
+        private long expireAt;
+
+        private Alias(String placeId, long expireAt) {
+            this.placeId = placeId;
+            this.expireAt = expireAt;
+        }
+    }
+}
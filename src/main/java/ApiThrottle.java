@@ -0,0 +1,305 @@
+import com.google.maps.PendingResult;
+import com.google.maps.errors.OverQueryLimitException;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Class ApiThrottle limits the calls made through one GeoApiContext so the program uses the full quota
+ * without falling off a cliff. Calls take a token from a token bucket, the number of calls in flight follows
+ * an additive increase, multiplicative decrease limit, and OVER_QUERY_LIMIT answers are retried after a
+ * jittered exponential backoff.
+ */
+public class ApiThrottle {
+    public final static double DEFAULT_PERMITS_PER_SEC = 10;
+    public final static int DEFAULT_MAX_CONCURRENCY = 32;
+    public final static int DEFAULT_MAX_RETRIES = 4;
+    public final static long DEFAULT_BACKOFF_MILLIS = 200;
+    private final static double MIN_CONCURRENCY = 1;
+    private final static double INITIAL_CONCURRENCY = 4;
+    private final static long NANOS_PER_SEC = 1000000000L;
+    private double permitsPerSec;
+    private double burstSize;
+    private double tokens;
+    private long lastRefillNanos;
+    private double concurrencyLimit;
+    private int maxConcurrency;
+    private int inFlight = 0;
+    private int maxRetries;
+    private long backoffMillis;
+    private long throttledCount = 0;
+    private long rejectedCount = 0;
+    private long quotaErrorCount = 0;
+    private Random random;
+    private ScheduledExecutorService retryScheduler;
+
+    /**
+     * Constructor for the class with default limits.
+     */
+    public ApiThrottle() {
+        this(DEFAULT_PERMITS_PER_SEC, DEFAULT_MAX_CONCURRENCY, DEFAULT_MAX_RETRIES, DEFAULT_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param permitsPerSec  calls allowed per second, also the burst size
+     * @param maxConcurrency most calls allowed in flight
+     * @param maxRetries     retries of a call answered with OVER_QUERY_LIMIT
+     * @param backoffMillis  backoff before the first retry, doubled for every next retry
+     */
+    public ApiThrottle(double permitsPerSec, int maxConcurrency, int maxRetries, long backoffMillis) {
+        this.permitsPerSec = permitsPerSec;
+        this.burstSize = Math.max(1, permitsPerSec);
+        this.tokens = burstSize;
+        this.lastRefillNanos = System.nanoTime();
+        this.maxConcurrency = maxConcurrency;
+        this.concurrencyLimit = Math.min(INITIAL_CONCURRENCY, maxConcurrency);
+        this.maxRetries = maxRetries;
+        this.backoffMillis = backoffMillis;
+        random = new Random();
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ApiThrottle-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends a google API call once the limits allow it.
+     *
+     * @param request creates the call, it is called again for every retry
+     * @param <T>     type of the result
+     * @return result of the call once it arrives
+     */
+    public <T> CompletableFuture<T> submit(Supplier<PendingResult<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(request, result, 0);
+        return result;
+    }
+
+    /**
+     * Makes the first attempt of a call, the calling thread waits for the limits.
+     *
+     * @param request creates the call
+     * @param result  result of the call
+     * @param retry   number of retries made before
+     * @param <T>     type of the result
+     */
+    private <T> void attempt(Supplier<PendingResult<T>> request, CompletableFuture<T> result, int retry) {
+        try {
+            acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return;
+        }
+        send(request, result, retry);
+    }
+
+    /**
+     * Makes a retry of a call on the retry thread. The thread is shared by all retries, so instead of
+     * waiting for the limits the retry is scheduled again when they do not allow it yet.
+     *
+     * @param request     creates the call
+     * @param result      result of the call
+     * @param retry       number of retries made before
+     * @param isThrottled true if the retry already had to wait for the limits
+     * @param <T>         type of the result
+     */
+    private <T> void retry(Supplier<PendingResult<T>> request, CompletableFuture<T> result, int retry,
+                           boolean isThrottled) {
+        long waitMillis = tryAcquire();
+        if (waitMillis > 0) {
+            retryScheduler.schedule(() -> retry(request, result, retry, true), waitMillis, TimeUnit.MILLISECONDS);
+            return;
+        }
+        if (isThrottled) {
+            countThrottled();
+        }
+        send(request, result, retry);
+    }
+
+    /**
+     * Sends a call that took its place in the limits.
+     *
+     * @param request creates the call
+     * @param result  result of the call
+     * @param retry   number of retries made before
+     * @param <T>     type of the result
+     */
+    private <T> void send(Supplier<PendingResult<T>> request, CompletableFuture<T> result, int retry) {
+        try {
+            request.get().setCallback(createCallback(request, result, retry));
+        } catch (RuntimeException e) {
+            // the call was never sent, its place is given back without changing the limits
+            cancel();
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Creates the callback that completes the result or schedules a retry.
+     *
+     * @param request creates the call
+     * @param result  result of the call
+     * @param retry   number of retries made before
+     * @param <T>     type of the result
+     * @return the callback
+     */
+    private <T> PendingResult.Callback<T> createCallback(Supplier<PendingResult<T>> request,
+                                                         CompletableFuture<T> result, int retry) {
+        return new PendingResult.Callback<T>() {
+            @Override
+            public void onResult(T response) {
+                release(false);
+                result.complete(response);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                boolean isQuotaError = e instanceof OverQueryLimitException;
+                release(isQuotaError);
+                if (isQuotaError && retry < maxRetries) {
+                    retryScheduler.schedule(() -> retry(request, result, retry + 1, false),
+                            nextBackoff(retry), TimeUnit.MILLISECONDS);
+                } else {
+                    if (isQuotaError) {
+                        countRejected();
+                    }
+                    result.completeExceptionally(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits until a token is available and the concurrency limit allows another call.
+     *
+     * @throws InterruptedException when the waiting thread is interrupted
+     */
+    private synchronized void acquire() throws InterruptedException {
+        boolean isThrottled = false;
+        while (true) {
+            long waitMillis = tryAcquire();
+            if (waitMillis == 0) {
+                if (isThrottled) {
+                    throttledCount++;
+                }
+                return;
+            }
+            isThrottled = true;
+            wait(waitMillis);
+        }
+    }
+
+    /**
+     * Takes a token and a place in flight if the limits allow another call.
+     *
+     * @return 0 if the call may be sent, else milliseconds to wait before trying again
+     */
+    private synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1 && inFlight < (int) concurrencyLimit) {
+            tokens -= 1;
+            inFlight++;
+            return 0;
+        }
+        if (tokens < 1) {
+            return Math.max(1, (long) ((1 - tokens) * 1000 / permitsPerSec));
+        }
+        return 1;
+    }
+
+    /**
+     * Gives back the place of a call that was never sent.
+     */
+    private synchronized void cancel() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Ends a call and adjusts the concurrency limit, it grows slowly on success and halves on quota errors.
+     *
+     * @param isQuotaError true if google answered OVER_QUERY_LIMIT
+     */
+    private synchronized void release(boolean isQuotaError) {
+        inFlight--;
+        if (isQuotaError) {
+            quotaErrorCount++;
+            concurrencyLimit = Math.max(MIN_CONCURRENCY, concurrencyLimit / 2);
+        } else {
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Adds the tokens earned since the last refill.
+     */
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burstSize, tokens + (now - lastRefillNanos) * permitsPerSec / NANOS_PER_SEC);
+        lastRefillNanos = now;
+    }
+
+    /**
+     * Draws the backoff of a retry, anywhere between 0 and the exponential backoff.
+     *
+     * @param retry number of retries made before
+     * @return backoff in milliseconds
+     */
+    private long nextBackoff(int retry) {
+        long maxBackoff = backoffMillis << retry;
+        return (long) (random.nextDouble() * maxBackoff);
+    }
+
+    private synchronized void countThrottled() {
+        throttledCount++;
+    }
+
+    private synchronized void countRejected() {
+        rejectedCount++;
+    }
+
+    /**
+     * Accessor for throttledCount.
+     *
+     * @return number of calls that had to wait for the limits
+     */
+    public synchronized long getThrottledCount() {
+        return throttledCount;
+    }
+
+    /**
+     * Accessor for rejectedCount.
+     *
+     * @return number of calls given up after all retries
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Accessor for quotaErrorCount.
+     *
+     * @return number of OVER_QUERY_LIMIT answers
+     */
+    public synchronized long getQuotaErrorCount() {
+        return quotaErrorCount;
+    }
+
+    /**
+     * Accessor for concurrencyLimit.
+     *
+     * @return current number of calls allowed in flight
+     */
+    public synchronized int getConcurrencyLimit() {
+        return (int) concurrencyLimit;
+    }
+}
@@ -0,0 +1,240 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class BulkEstimator estimates alarm times for a CSV of events without any window.
+ * Rows are read one by one, estimated by a pool of workers and written in input order as soon as they are done.
+ * Only a fixed window of rows is in memory at a time, so the input can be as large as needed.
+ * <p>
+ * Input columns: address from, address to, event name, arrival (MM/dd/yyyy HH:mm), transport, importance.
+ * Output columns: event name, arrival time, alarm time, travel minutes, minutes ready, status.
+ */
+public class BulkEstimator {
+    public final static String OUTPUT_HEADER = "Event Name,Arrival Time,Alarm Time,Travel Minutes,Minutes Ready,Status";
+    private final static int ROWS_PER_WORKER = 4;
+    private final static double DEFAULT_IMPORTANT_SCALE = 3;
+    private ReadyTimeCalc readyTimeCalc;
+    private int workers;
+    private long rowCount = 0;
+    private long errorCount = 0;
+
+    /**
+     * Constructor for the class.
+     *
+     * @param dataSource source of trip information, null to run without the API
+     * @param workers    number of rows estimated at the same time
+     */
+    public BulkEstimator(MapDataSource dataSource, int workers) {
+        this.readyTimeCalc = new ReadyTimeCalc(dataSource);
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Estimates every row of the input and writes the alarm times to the output.
+     *
+     * @param input  CSV of events
+     * @param output where the alarm times are written
+     * @throws IOException when the input can not be read or the output can not be written
+     */
+    public void run(Reader input, Writer output) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        ArrayDeque<Future<String>> window = new ArrayDeque<>();
+        int windowSize = workers * ROWS_PER_WORKER;
+        try {
+            output.write(OUTPUT_HEADER);
+            output.write("\n");
+            String line;
+            boolean isFirstLine = true;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() == 0 || (isFirstLine && isHeader(line))) {
+                    isFirstLine = false;
+                    continue;
+                }
+                isFirstLine = false;
+                String row = line;
+                window.add(executor.submit(() -> estimateRow(row)));
+                if (window.size() >= windowSize) {
+                    writeRow(window.poll(), output);
+                }
+            }
+            while (!window.isEmpty()) {
+                writeRow(window.poll(), output);
+            }
+            output.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the result of a row once it is done.
+     *
+     * @param row    the pending row
+     * @param output where the alarm times are written
+     * @throws IOException when the output can not be written
+     */
+    private void writeRow(Future<String> row, Writer output) throws IOException {
+        try {
+            output.write(row.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while estimating", e);
+        } catch (ExecutionException e) {
+            output.write(",,,,,ERROR " + e.getCause());
+        }
+        output.write("\n");
+        output.flush();
+        rowCount++;
+    }
+
+    /**
+     * Estimates the alarm time of one row.
+     *
+     * @param line a row of the input
+     * @return a row of the output
+     */
+    private String estimateRow(String line) {
+        RawUserInput ob;
+        try {
+            ob = parseRow(line);
+        } catch (RuntimeException e) {
+            countError();
+            return ",,,,,ERROR invalid row: " + line.replace(",", " ");
+        }
+        CalendarEvent event = readyTimeCalc.estimate(ob);
+        boolean hasInfo = event instanceof EventWithInfo;
+        return String.format("%s,%s,%s,%s,%d,%s", ob.getName().replace(",", " "),
+                event.getArrivalTimeString(), event.getAlarmString(),
+                hasInfo ? String.valueOf(((EventWithInfo) event).getTravelTime()) : "",
+                event.recommendedReadyMin, hasInfo ? "OK" : "NO INFO");
+    }
+
+    /**
+     * Creates the user input from a row.
+     *
+     * @param line a row of the input
+     * @return the user input
+     * @throws IllegalArgumentException when the row is not valid
+     */
+    static RawUserInput parseRow(String line) {
+        ArrayList<String> fields = splitRow(line);
+        if (fields.size() < 5) {
+            throw new IllegalArgumentException("Row needs at least 5 columns");
+        }
+        double importantScale = fields.size() >= 6 && fields.get(5).trim().length() > 0
+                ? Double.parseDouble(fields.get(5).trim()) : DEFAULT_IMPORTANT_SCALE;
+        // most rows share a few addresses, pool them so the results do not keep a copy per row
+        return new RawUserInput(StringPool.intern(fields.get(0).trim()), StringPool.intern(fields.get(1).trim()),
+                fields.get(2).trim(), parseDateTime(fields.get(3).trim()), parseTransport(fields.get(4).trim()),
+                importantScale);
+    }
+
+    /**
+     * Splits a row into columns, commas inside double quotes do not split.
+     *
+     * @param line a row of the input
+     * @return the columns
+     */
+    static ArrayList<String> splitRow(String line) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (isQuoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    isQuoted = !isQuoted;
+                }
+            } else if (c == ',' && !isQuoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Creates the date and time of a column written as MM/dd/yyyy HH:mm.
+     *
+     * @param dateTime the column
+     * @return the date and time
+     */
+    private static GregorianCalendar parseDateTime(String dateTime) {
+        String[] dateAndTime = dateTime.split("\\s+");
+        String[] dateArr = dateAndTime[0].split("/");
+        String[] timeArr = dateAndTime[1].split(":");
+        return new GregorianCalendar(Integer.parseInt(dateArr[2]), Integer.parseInt(dateArr[0]) - 1,
+                Integer.parseInt(dateArr[1]), Integer.parseInt(timeArr[0]), Integer.parseInt(timeArr[1]));
+    }
+
+    /**
+     * Gets the mode of transportation of a column, accepting the names shown in the window too.
+     *
+     * @param transport the column
+     * @return mode of transportation
+     */
+    private static String parseTransport(String transport) {
+        switch (transport.toUpperCase()) {
+            case "BIKING":
+            case CalendarEvent.BIKING_TYPE:
+                return CalendarEvent.BIKING_TYPE;
+            case CalendarEvent.WALKING_TYPE:
+                return CalendarEvent.WALKING_TYPE;
+            case CalendarEvent.TRANSIT_TYPE:
+                return CalendarEvent.TRANSIT_TYPE;
+            case CalendarEvent.DRIVING_TYPE:
+                return CalendarEvent.DRIVING_TYPE;
+            default:
+                throw new IllegalArgumentException("Unknown transport " + transport);
+        }
+    }
+
+    /**
+     * Checks if a line is a header instead of an event, a header has no date in the arrival column.
+     *
+     * @param line first line of the input
+     * @return true if it is a header
+     */
+    private static boolean isHeader(String line) {
+        ArrayList<String> fields = splitRow(line);
+        return fields.size() >= 4 && !fields.get(3).matches(".*\\d.*");
+    }
+
+    private synchronized void countError() {
+        errorCount++;
+    }
+
+    /**
+     * Accessor for rowCount.
+     *
+     * @return number of rows written
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Accessor for errorCount.
+     *
+     * @return number of rows that could not be read
+     */
+    public synchronized long getErrorCount() {
+        return errorCount;
+    }
+}
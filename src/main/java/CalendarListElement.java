@@ -36,7 +36,8 @@ public class CalendarListElement extends JTextArea implements ListCellRenderer {
                                                   boolean isSelected, boolean cellHasFocus) {
         setBackground(null);
         CalendarEvent event = (CalendarEvent) value;
-        setText(event.getSummaryInfo());
+        // an event removed after the list was read is shown empty until the list is updated
+        setText(event == null ? "" : event.getSummaryInfo());
         if (cellHasFocus) {
             currentOb = event;
             setBackground(Color.LIGHT_GRAY);
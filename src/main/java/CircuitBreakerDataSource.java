@@ -0,0 +1,189 @@
+import java.util.GregorianCalendar;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Class CircuitBreakerDataSource bounds how long a trip request may take. Each request gets a deadline,
+ * and after repeated failures or timeouts the circuit opens: requests fail at once, so the event is created
+ * without info instead of waiting on a slow google. After a while one request is let through to probe
+ * whether google recovered. Only timeouts and MapDataUnavailableException count as failures, a trip that
+ * google answered without result, such as a mistyped address, shows that google works.
+ */
+public class CircuitBreakerDataSource implements MapDataSource {
+    public final static long DEFAULT_DEADLINE_MILLIS = 8000;
+    public final static int DEFAULT_FAILURE_THRESHOLD = 5;
+    public final static long DEFAULT_OPEN_MILLIS = 30000;
+    private final static int CLOSED = 0;
+    private final static int OPEN = 1;
+    private final static int HALF_OPEN = 2;
+    private MapDataSource dataSource;
+    private ExecutorService executor;
+    private long deadlineMillis;
+    private int failureThreshold;
+    private long openMillis;
+    private int state = CLOSED;
+    private int failureCount = 0;
+    private long openUntil = 0;
+    private long timeoutCount = 0;
+    private long shortCircuitCount = 0;
+
+    /**
+     * Constructor for the class with default limits.
+     *
+     * @param dataSource the data source doing the real requests
+     */
+    public CircuitBreakerDataSource(MapDataSource dataSource) {
+        this(dataSource, DEFAULT_DEADLINE_MILLIS, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param dataSource       the data source doing the real requests
+     * @param deadlineMillis   longest time a request may take
+     * @param failureThreshold failures in a row that open the circuit
+     * @param openMillis       time the circuit stays open before a probe
+     */
+    public CircuitBreakerDataSource(MapDataSource dataSource, long deadlineMillis, int failureThreshold,
+                                    long openMillis) {
+        this.dataSource = dataSource;
+        this.deadlineMillis = deadlineMillis;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "CircuitBreaker-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Requests the information of a trip within the deadline, or fails at once while the circuit is open.
+     *
+     * @param origin      Beginning destination
+     * @param destination Ending destination
+     * @param travelMode  Mode of transportation
+     * @param arrivalTime Time that user must be at event
+     * @return the information of the trip or null if it could not be provided in time
+     */
+    @Override
+    public RouteInfo requestMapData(String origin, String destination, String travelMode,
+                                    GregorianCalendar arrivalTime) {
+        if (!allowRequest()) {
+            return null;
+        }
+        Future<RouteInfo> request = executor.submit(() ->
+                dataSource.requestMapData(origin, destination, travelMode, arrivalTime));
+        try {
+            RouteInfo info = request.get(deadlineMillis, TimeUnit.MILLISECONDS);
+            recordResult(true);
+            return info;
+        } catch (TimeoutException e) {
+            request.cancel(true);
+            countTimeout();
+            recordResult(false);
+        } catch (InterruptedException e) {
+            // the caller gave up, that says nothing about google
+            request.cancel(true);
+            Thread.currentThread().interrupt();
+            releaseProbe();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            if (e.getCause() instanceof MapDataUnavailableException) {
+                recordResult(false);
+            } else {
+                releaseProbe();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a request may go through, an open circuit lets one probe through once it has waited long enough.
+     *
+     * @return true if the request may go through
+     */
+    private synchronized boolean allowRequest() {
+        if (state == CLOSED) {
+            return true;
+        }
+        if (state == OPEN && System.currentTimeMillis() >= openUntil) {
+            state = HALF_OPEN;
+            return true;
+        }
+        shortCircuitCount++;
+        return false;
+    }
+
+    /**
+     * Records the result of a request, closing the circuit on success and opening it after too many failures.
+     *
+     * @param isSuccess true if google answered, with or without a trip
+     */
+    private synchronized void recordResult(boolean isSuccess) {
+        if (isSuccess) {
+            state = CLOSED;
+            failureCount = 0;
+            return;
+        }
+        failureCount++;
+        if (state == HALF_OPEN || failureCount >= failureThreshold) {
+            state = OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+    }
+
+    /**
+     * Lets another probe through when a probe ended without telling whether google recovered.
+     */
+    private synchronized void releaseProbe() {
+        if (state == HALF_OPEN) {
+            state = OPEN;
+            openUntil = 0;
+        }
+    }
+
+    private synchronized void countTimeout() {
+        timeoutCount++;
+    }
+
+    /**
+     * Accessor for dataSource.
+     *
+     * @return the data source doing the real requests
+     */
+    public MapDataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Checks if the circuit is open.
+     *
+     * @return true if requests currently fail at once
+     */
+    public synchronized boolean isOpen() {
+        return state != CLOSED;
+    }
+
+    /**
+     * Accessor for timeoutCount.
+     *
+     * @return number of requests that ran past the deadline
+     */
+    public synchronized long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    /**
+     * Accessor for shortCircuitCount.
+     *
+     * @return number of requests failed at once because the circuit was open
+     */
+    public synchronized long getShortCircuitCount() {
+        return shortCircuitCount;
+    }
+}
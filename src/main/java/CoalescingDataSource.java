@@ -0,0 +1,90 @@
+import java.util.GregorianCalendar;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class CoalescingDataSource sits in front of another data source and shares one pending request between
+ * callers asking for the same trip at the same time, so double clicks and retries do not call google again.
+ * A caller served by another caller's request gets the same error, unwrapped, so a circuit breaker in front
+ * counts it like its own.
+ */
+public class CoalescingDataSource implements MapDataSource {
+    private MapDataSource dataSource;
+    private ConcurrentHashMap<String, CompletableFuture<RouteInfo>> pendingRequests;
+    private AtomicLong sharedCount;
+
+    /**
+     * Constructor for the class.
+     *
+     * @param dataSource the data source doing the real requests
+     */
+    public CoalescingDataSource(MapDataSource dataSource) {
+        this.dataSource = dataSource;
+        pendingRequests = new ConcurrentHashMap<>();
+        sharedCount = new AtomicLong();
+    }
+
+    /**
+     * Requests the information of a trip, or waits for the same request already in flight.
+     *
+     * @param origin      Beginning destination
+     * @param destination Ending destination
+     * @param travelMode  Mode of transportation
+     * @param arrivalTime Time that user must be at event
+     * @return the information of the trip or null if it could not be provided or the caller was interrupted
+     */
+    @Override
+    public RouteInfo requestMapData(String origin, String destination, String travelMode,
+                                    GregorianCalendar arrivalTime) {
+        String key = RouteCache.createKey(origin, destination, travelMode, arrivalTime);
+        CompletableFuture<RouteInfo> request = new CompletableFuture<>();
+        CompletableFuture<RouteInfo> pendingRequest = pendingRequests.putIfAbsent(key, request);
+        if (pendingRequest != null) {
+            sharedCount.incrementAndGet();
+            return awaitShared(pendingRequest);
+        }
+        try {
+            RouteInfo info = dataSource.requestMapData(origin, destination, travelMode, arrivalTime);
+            request.complete(info);
+            return info;
+        } catch (RuntimeException | Error e) {
+            // an error must reach the callers waiting on this request too, or they wait forever
+            request.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingRequests.remove(key, request);
+        }
+    }
+
+    /**
+     * Waits for another caller's request, the wait ends when this thread is interrupted.
+     *
+     * @param pendingRequest the request in flight
+     * @return the information of the trip or null if the wait was interrupted
+     */
+    private static RouteInfo awaitShared(CompletableFuture<RouteInfo> pendingRequest) {
+        try {
+            return pendingRequest.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // only RuntimeException and Error are completed exceptionally
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Accessor for sharedCount.
+     *
+     * @return number of requests that were served by another caller's request
+     */
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+}
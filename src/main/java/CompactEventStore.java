@@ -0,0 +1,458 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Class CompactEventStore keeps the events in the heap as parallel arrays of numbers instead of CalendarEvent
+ * objects, which carry two calendars, a date format and a transportation each. Every event has a slot with
+ * its times, durations, mode, importance and place information, and its strings are numbers in a string
+ * table, so addresses and place ids used by many events are kept once. The events are only made again when
+ * they are asked for. A sorted array of arrival times and slots is the time index.
+ * Strings stay in the table after their events are removed.
+ */
+public class CompactEventStore implements EventStore {
+    private final static int INITIAL_CAPACITY = 64;
+    private final static int NO_STRING = -1;
+    private final static long NO_DURATION = -1;
+    private final static byte HAS_INFO = 1;
+    private final static byte IS_ALARM_CORRECTED = 2;
+    private final static byte HAS_PLACE_INFO = 4;
+    // opening hours of a place are one string in the string table, a line per day
+    private final static String PERIOD_SEPARATOR = "\n";
+    private final static String[] MODES = {null, CalendarEvent.DRIVING_TYPE, CalendarEvent.BIKING_TYPE,
+            CalendarEvent.WALKING_TYPE, CalendarEvent.TRANSIT_TYPE};
+
+    // time index: arrival times sorted and the slot of each
+    private long[] keys;
+    private int[] keySlots;
+    private int size = 0;
+    // free slots and the number of slots ever used
+    private int[] freeSlots;
+    private int freeCount = 0;
+    private int slotCount = 0;
+
+    // one entry per slot
+    private byte[] flags;
+    private byte[] modes;
+    private long[] alarmMillis;
+    private int[] durationSec;
+    private int[] distance;
+    private int[] readyMin;
+    private double[] importance;
+    private double[] averageRating;
+    private int[] addressFrom;
+    private int[] addressTo;
+    private int[] eventName;
+    private int[] originName;
+    private int[] destName;
+    private int[] timeZone;
+    private int[] originId;
+    private int[] destinationId;
+    private int[] openPeriod;
+    private int[] priceLevel;
+    private int[] placeType;
+    private float[] placeRating;
+    // travel time in seconds of each mode of MODES, NO_DURATION when the mode was not compared
+    private long[][] modeDurations;
+
+    private ArrayList<String> strings;
+    private HashMap<String, Integer> stringIds;
+
+    /**
+     * Constructor for the class.
+     */
+    public CompactEventStore() {
+        clear();
+    }
+
+    @Override
+    public synchronized CalendarEvent get(long key) {
+        int position = Arrays.binarySearch(keys, 0, size, key);
+        return position < 0 ? null : createEvent(keySlots[position], key);
+    }
+
+    @Override
+    public synchronized void put(long key, CalendarEvent event) {
+        int position = Arrays.binarySearch(keys, 0, size, key);
+        int slot;
+        if (position >= 0) {
+            slot = keySlots[position];
+        } else {
+            slot = allocateSlot();
+            position = -position - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                keySlots = Arrays.copyOf(keySlots, size * 2);
+            }
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            System.arraycopy(keySlots, position, keySlots, position + 1, size - position);
+            keys[position] = key;
+            keySlots[position] = slot;
+            size++;
+        }
+        writeSlot(slot, event);
+    }
+
+    @Override
+    public synchronized boolean remove(long key) {
+        int position = Arrays.binarySearch(keys, 0, size, key);
+        if (position < 0) {
+            return false;
+        }
+        int slot = keySlots[position];
+        System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+        System.arraycopy(keySlots, position + 1, keySlots, position, size - position - 1);
+        size--;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        keys = new long[INITIAL_CAPACITY];
+        keySlots = new int[INITIAL_CAPACITY];
+        size = 0;
+        freeSlots = new int[INITIAL_CAPACITY];
+        freeCount = 0;
+        slotCount = 0;
+        resizeSlots(INITIAL_CAPACITY);
+        strings = new ArrayList<>();
+        stringIds = new HashMap<>();
+    }
+
+    @Override
+    public synchronized boolean containsKey(long key) {
+        return Arrays.binarySearch(keys, 0, size, key) >= 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets the events arriving in a range of times. The events are made while the store is locked, so the
+     * list stays the same when the store changes later.
+     *
+     * @param fromKey first arrival time included
+     * @param toKey   first arrival time not included
+     * @param limit   most events returned
+     * @return the events in the range
+     */
+    @Override
+    public synchronized List<CalendarEvent> range(long fromKey, long toKey, int limit) {
+        if (fromKey >= toKey) {
+            return Collections.emptyList();
+        }
+        int from = lowerBound(fromKey);
+        int count = Math.min(lowerBound(toKey) - from, limit);
+        ArrayList<CalendarEvent> eventList = new ArrayList<>(count);
+        for (int position = from; position < from + count; position++) {
+            eventList.add(createEvent(keySlots[position], keys[position]));
+        }
+        return Collections.unmodifiableList(eventList);
+    }
+
+    @Override
+    public synchronized long[] keys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    @Override
+    public boolean keepsEventObjects() {
+        return false;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    private int lowerBound(long key) {
+        int position = Arrays.binarySearch(keys, 0, size, key);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * Takes a free slot, or a new one after all slots used so far.
+     *
+     * @return the slot
+     */
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == flags.length) {
+            resizeSlots(slotCount * 2);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * Sets the number of slots the arrays hold.
+     *
+     * @param capacity number of slots
+     */
+    private void resizeSlots(int capacity) {
+        if (slotCount == 0) {
+            flags = new byte[capacity];
+            modes = new byte[capacity];
+            alarmMillis = new long[capacity];
+            durationSec = new int[capacity];
+            distance = new int[capacity];
+            readyMin = new int[capacity];
+            importance = new double[capacity];
+            averageRating = new double[capacity];
+            addressFrom = new int[capacity];
+            addressTo = new int[capacity];
+            eventName = new int[capacity];
+            originName = new int[capacity];
+            destName = new int[capacity];
+            timeZone = new int[capacity];
+            originId = new int[capacity];
+            destinationId = new int[capacity];
+            openPeriod = new int[capacity];
+            priceLevel = new int[capacity];
+            placeType = new int[capacity];
+            placeRating = new float[capacity];
+            modeDurations = new long[MODES.length][];
+            for (int mode = 1; mode < MODES.length; mode++) {
+                modeDurations[mode] = new long[capacity];
+            }
+            return;
+        }
+        flags = Arrays.copyOf(flags, capacity);
+        modes = Arrays.copyOf(modes, capacity);
+        alarmMillis = Arrays.copyOf(alarmMillis, capacity);
+        durationSec = Arrays.copyOf(durationSec, capacity);
+        distance = Arrays.copyOf(distance, capacity);
+        readyMin = Arrays.copyOf(readyMin, capacity);
+        importance = Arrays.copyOf(importance, capacity);
+        averageRating = Arrays.copyOf(averageRating, capacity);
+        addressFrom = Arrays.copyOf(addressFrom, capacity);
+        addressTo = Arrays.copyOf(addressTo, capacity);
+        eventName = Arrays.copyOf(eventName, capacity);
+        originName = Arrays.copyOf(originName, capacity);
+        destName = Arrays.copyOf(destName, capacity);
+        timeZone = Arrays.copyOf(timeZone, capacity);
+        originId = Arrays.copyOf(originId, capacity);
+        destinationId = Arrays.copyOf(destinationId, capacity);
+        openPeriod = Arrays.copyOf(openPeriod, capacity);
+        priceLevel = Arrays.copyOf(priceLevel, capacity);
+        placeType = Arrays.copyOf(placeType, capacity);
+        placeRating = Arrays.copyOf(placeRating, capacity);
+        for (int mode = 1; mode < MODES.length; mode++) {
+            modeDurations[mode] = Arrays.copyOf(modeDurations[mode], capacity);
+        }
+    }
+
+    /**
+     * Copies the values of an event into a slot.
+     *
+     * @param slot  the slot
+     * @param event the event
+     */
+    private void writeSlot(int slot, CalendarEvent event) {
+        boolean hasInfo = event instanceof EventWithInfo;
+        flags[slot] = (byte) ((hasInfo ? HAS_INFO : 0) | (event.isAlarmCorrected ? IS_ALARM_CORRECTED : 0));
+        modes[slot] = modeOf(event.transport);
+        alarmMillis[slot] = event.alarmTime.getTimeInMillis();
+        durationSec[slot] = event.transport == null ? 0 : event.transport.durationInSec;
+        distance[slot] = event.transport == null ? 0 : event.transport.distance;
+        readyMin[slot] = event.recommendedReadyMin;
+        importance[slot] = event.importantScale;
+        addressFrom[slot] = idOf(event.addressFrom);
+        addressTo[slot] = idOf(event.addressTo);
+        eventName[slot] = idOf(event.eventName);
+        originName[slot] = idOf(event.originName);
+        destName[slot] = idOf(event.destName);
+        timeZone[slot] = idOf(event.arrivalDateTime.getTimeZone().getID());
+        averageRating[slot] = 0;
+        for (int mode = 1; mode < MODES.length; mode++) {
+            modeDurations[mode][slot] = NO_DURATION;
+        }
+        if (hasInfo) {
+            EventWithInfo eventWithInfo = (EventWithInfo) event;
+            averageRating[slot] = eventWithInfo.getAverageRating();
+            if (eventWithInfo.getModeDurations() != null) {
+                writeModeDurations(slot, eventWithInfo.getModeDurations());
+            }
+            GooglePlaceInfo placeInfo = eventWithInfo.getPlaceInfo();
+            if (placeInfo != null) {
+                flags[slot] |= HAS_PLACE_INFO;
+                writePlaceInfo(slot, placeInfo);
+            }
+        }
+    }
+
+    /**
+     * Copies the travel time of each mode into a slot, google only compares the modes of MODES.
+     *
+     * @param slot      the slot
+     * @param durations travel time in seconds of each mode
+     */
+    private void writeModeDurations(int slot, Map<String, Long> durations) {
+        for (Map.Entry<String, Long> duration : durations.entrySet()) {
+            if (duration.getValue() != null) {
+                modeDurations[modeOf(duration.getKey())][slot] = duration.getValue();
+            }
+        }
+    }
+
+    /**
+     * Makes the travel time of each mode of a slot.
+     *
+     * @param slot the slot
+     * @return travel time in seconds of each mode, empty if the modes were not compared
+     */
+    private HashMap<String, Long> createModeDurations(int slot) {
+        HashMap<String, Long> durations = new HashMap<>();
+        for (int mode = 1; mode < MODES.length; mode++) {
+            if (modeDurations[mode][slot] != NO_DURATION) {
+                durations.put(MODES[mode], modeDurations[mode][slot]);
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * Copies the place information of an event into a slot.
+     *
+     * @param slot      the slot
+     * @param placeInfo the place information
+     */
+    private void writePlaceInfo(int slot, GooglePlaceInfo placeInfo) {
+        originId[slot] = idOf(placeInfo.getOriginID());
+        destinationId[slot] = idOf(placeInfo.getDestinationID());
+        priceLevel[slot] = idOf(placeInfo.getDestPriceLevel());
+        placeType[slot] = idOf(placeInfo.getDestPlaceType());
+        placeRating[slot] = placeInfo.getDestinationRating();
+        String[] periods = placeInfo.getOpenPeriod();
+        openPeriod[slot] = periods == null ? NO_STRING : idOf(String.join(PERIOD_SEPARATOR, periods));
+    }
+
+    /**
+     * Makes the place information of a slot.
+     *
+     * @param slot the slot
+     * @return the place information or null if the event has none
+     */
+    private GooglePlaceInfo createPlaceInfo(int slot) {
+        if ((flags[slot] & HAS_PLACE_INFO) == 0) {
+            return null;
+        }
+        String periods = stringOf(openPeriod[slot]);
+        String[] periodArray = null;
+        if (periods != null) {
+            periodArray = periods.isEmpty() ? new String[0] : periods.split(PERIOD_SEPARATOR, -1);
+        }
+        return new GooglePlaceInfo(stringOf(originId[slot]), stringOf(destinationId[slot]), periodArray,
+                stringOf(priceLevel[slot]), stringOf(placeType[slot]), placeRating[slot]);
+    }
+
+    /**
+     * Makes the event of a slot, like EventCodec makes an event it reads.
+     *
+     * @param slot the slot
+     * @param key  arrival time in epoch milliseconds
+     * @return the event
+     */
+    private CalendarEvent createEvent(int slot, long key) {
+        TimeZone zone = TimeZone.getTimeZone(stringOf(timeZone[slot]));
+        GregorianCalendar arrival = new GregorianCalendar(zone);
+        arrival.setTimeInMillis(key);
+        GregorianCalendar alarm = new GregorianCalendar(zone);
+        alarm.setTimeInMillis(alarmMillis[slot]);
+        String mode = MODES[modes[slot]];
+        CalendarEvent event;
+        if ((flags[slot] & HAS_INFO) != 0) {
+            EventWithInfo eventWithInfo = new EventWithInfo(createPlaceInfo(slot), stringOf(addressFrom[slot]),
+                    stringOf(addressTo[slot]), stringOf(eventName[slot]), stringOf(originName[slot]),
+                    stringOf(destName[slot]), arrival, mode, durationSec[slot], distance[slot], importance[slot],
+                    averageRating[slot]);
+            HashMap<String, Long> durations = createModeDurations(slot);
+            if (!durations.isEmpty()) {
+                eventWithInfo.setModeDurations(durations);
+            }
+            event = eventWithInfo;
+        } else if (mode != null) {
+            event = new EventWithoutInfo(stringOf(addressFrom[slot]), stringOf(addressTo[slot]),
+                    stringOf(eventName[slot]), arrival, mode, importance[slot]);
+        } else {
+            event = new EventWithoutInfo(stringOf(addressFrom[slot]), stringOf(addressTo[slot]),
+                    stringOf(eventName[slot]), arrival, (Transportation) null, importance[slot]);
+        }
+        event.originName = stringOf(originName[slot]);
+        event.destName = stringOf(destName[slot]);
+        event.recommendedReadyMin = readyMin[slot];
+        event.alarmTime = alarm;
+        event.isAlarmCorrected = (flags[slot] & IS_ALARM_CORRECTED) != 0;
+        event.dateTimeFormat.setTimeZone(zone);
+        return event;
+    }
+
+    /**
+     * Gets the number of a mode of transportation.
+     *
+     * @param transport the transportation
+     * @return index in MODES
+     */
+    private static byte modeOf(Transportation transport) {
+        return transport == null ? 0 : modeOf(transport.toString());
+    }
+
+    /**
+     * Gets the number of a mode of transportation.
+     *
+     * @param mode name of the mode
+     * @return index in MODES
+     */
+    private static byte modeOf(String mode) {
+        for (byte i = 1; i < MODES.length; i++) {
+            if (MODES[i].equals(mode)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown mode of transportation " + mode);
+    }
+
+    /**
+     * Gets the number of a string in the string table, the string is added if it is new.
+     *
+     * @param str the string
+     * @return number of the string
+     */
+    private int idOf(String str) {
+        if (str == null) {
+            return NO_STRING;
+        }
+        Integer id = stringIds.get(str);
+        if (id == null) {
+            id = strings.size();
+            str = StringPool.intern(str);
+            strings.add(str);
+            stringIds.put(str, id);
+        }
+        return id;
+    }
+
+    private String stringOf(int id) {
+        return id == NO_STRING ? null : strings.get(id);
+    }
+
+    /**
+     * Accessor for the number of strings in the string table.
+     *
+     * @return number of strings
+     */
+    synchronized int getStringCount() {
+        return strings.size();
+    }
+}
@@ -1,14 +1,18 @@
 
+import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.List;
 
 /**
  * Class controller mitigates information from the UserInput, EventModel, and OutputFrame
  * Class uses Observer Pattern. Listener from UserInputFrame.
  */
 public class Controller implements Listener {
+    public final static int CONFLICT_WINDOW_MIN = 30;
     private UserInputFrame userInput;
     private EventModel model;
     private OutputFrame outputFrame;
+    private Prefetcher prefetcher;
 
     /**
      * Constructor of the class.
@@ -23,6 +27,11 @@ public class Controller implements Listener {
         this.model = model;
         userInput.addListener(this);
         createButtonUserInput();
+        // the checks of a new event would wait on the event dispatch thread for the saved events
+        if (model.isRestoring()) {
+            userInput.setAddEnabled(false);
+            model.whenRestored(() -> userInput.setAddEnabled(true));
+        }
     }
 
     /**
@@ -44,6 +53,43 @@ public class Controller implements Listener {
         return model.isTimeOccupied(dateTime);
     }
 
+    /**
+     * Finds the saved events the user is busy with while getting ready for a new event, that is the events
+     * whose window from alarm to arrival overlaps the time just before the new event. The alarm of the new
+     * event is not known before its trip is estimated, so a window of CONFLICT_WINDOW_MIN is guessed.
+     *
+     * @param dateTime Time and Date that the new event is scheduled
+     * @return the overlapping events
+     */
+    public List<CalendarEvent> findConflicts(GregorianCalendar dateTime) {
+        return model.findConflicts(guessWindowStart(dateTime), dateTime);
+    }
+
+    /**
+     * Asks the user to confirm the saved events that overlap the real window of an estimated event, from its
+     * alarm to its arrival. Events inside the guessed window were confirmed before the estimate and are left out.
+     *
+     * @param event the estimated event
+     * @return true if there is no new overlap or the user wants to save the event anyway
+     */
+    public boolean confirmConflicts(CalendarEvent event) {
+        GregorianCalendar arrival = event.getArrivalDateTime();
+        GregorianCalendar alarm = event.getAlarmTime();
+        GregorianCalendar guessStart = guessWindowStart(arrival);
+        if (alarm == null || !alarm.before(guessStart)) {
+            return true;
+        }
+        List<CalendarEvent> conflicts = model.findConflicts(alarm, arrival);
+        conflicts.removeAll(model.findConflicts(guessStart, arrival));
+        return userInput.confirmConflicts(conflicts);
+    }
+
+    private static GregorianCalendar guessWindowStart(GregorianCalendar dateTime) {
+        GregorianCalendar from = (GregorianCalendar) dateTime.clone();
+        from.add(Calendar.MINUTE, -CONFLICT_WINDOW_MIN);
+        return from;
+    }
+
     /**
      * Saves the created event to File.
      */
@@ -69,6 +115,15 @@ public class Controller implements Listener {
 
     }
 
+    /**
+     * Sets the prefetcher that looks up trips while the user is filling the form.
+     *
+     * @param prefetcher the prefetcher, null to turn prefetching off
+     */
+    public void setPrefetcher(Prefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
     /**
      * Updates the user information that was changed.
      *
@@ -77,6 +132,8 @@ public class Controller implements Listener {
     public void update(Object ob) {
         if (ob.getClass().equals(RawUserInput.class)) {
             requestData((RawUserInput) ob);
+        } else if (ob.getClass().equals(PrefetchRequest.class) && prefetcher != null) {
+            prefetcher.prefetch(((PrefetchRequest) ob).getInput());
         }
     }
 }
@@ -2,14 +2,21 @@ import javax.swing.*;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * a class that help EventModel adapt to JList
+ * Only the arrival times of the events are kept, the events are read from the model a page at a time
+ * when the list shows them, so a big calendar in a compact or mapped store is never made all at once.
  */
 public class DataListModel extends AbstractListModel {
+    private final static int PAGE_SIZE = 64;
     private EventModel model;
-    private ArrayList<CalendarEvent> eventListForModel;
+    private long[] keys = new long[0];
+    private long version = -1;
+    // the page of events last shown, an event removed since the keys were read is null
+    private CalendarEvent[] page = new CalendarEvent[0];
+    private int pageStart = -1;
 
     /**
      * Constructor
@@ -22,11 +29,25 @@ public class DataListModel extends AbstractListModel {
     }
 
     /**
-     * Updates the list
+     * Updates the list, the arrival times of the model are only read again when the events changed.
      */
     public void updateList() {
-        eventListForModel = model.getEventsList();
-        fireIntervalAdded(eventListForModel, eventListForModel.size(), eventListForModel.size());
+        long modelVersion = model.getVersion();
+        if (modelVersion == version) {
+            return;
+        }
+        version = modelVersion;
+        int oldSize = keys.length;
+        keys = model.getKeys();
+        pageStart = -1;
+        if (keys.length > oldSize) {
+            fireIntervalAdded(this, oldSize, keys.length - 1);
+        } else if (keys.length < oldSize) {
+            fireIntervalRemoved(this, keys.length, oldSize - 1);
+        }
+        if (keys.length > 0) {
+            fireContentsChanged(this, 0, keys.length - 1);
+        }
     }
 
     /**
@@ -36,8 +57,7 @@ public class DataListModel extends AbstractListModel {
      */
     public void remove(CalendarEvent ob) {
         model.removeEvents(ob);
-        model.getEventsList();
-        fireIntervalRemoved(eventListForModel, 0, eventListForModel.size());
+        updateList();
     }
 
     /**
@@ -56,7 +76,7 @@ public class DataListModel extends AbstractListModel {
      */
     @Override
     public int getSize() {
-        return eventListForModel.size();
+        return keys.length;
     }
 
     /**
@@ -67,7 +87,31 @@ public class DataListModel extends AbstractListModel {
      */
     @Override
     public Object getElementAt(int index) {
-        return eventListForModel.get(index);
+        if (pageStart < 0 || index < pageStart || index >= pageStart + page.length) {
+            readPage(index - index % PAGE_SIZE);
+        }
+        return page[index - pageStart];
+    }
+
+    /**
+     * Reads the events of a page from the model, each at the position of its arrival time.
+     *
+     * @param start position of the first event of the page
+     */
+    private void readPage(int start) {
+        int end = Math.min(start + PAGE_SIZE, keys.length);
+        page = new CalendarEvent[end - start];
+        pageStart = start;
+        int position = start;
+        for (CalendarEvent event : model.eventsBetween(keys[start], keys[end - 1] + 1, PAGE_SIZE)) {
+            long key = event.getArrivalDateTime().getTimeInMillis();
+            while (position < end && keys[position] < key) {
+                position++;
+            }
+            if (position < end && keys[position] == key) {
+                page[position - start] = event;
+            }
+        }
     }
 
 
@@ -1,36 +1,48 @@
-import com.google.maps.DirectionsApiRequest;
+import com.google.maps.DistanceMatrixApi;
 import com.google.maps.GeoApiContext;
+import com.google.maps.errors.OverDailyLimitException;
+import com.google.maps.errors.OverQueryLimitException;
+import com.google.maps.errors.UnknownErrorException;
+import com.google.maps.model.DirectionsLeg;
 import com.google.maps.model.DirectionsResult;
+import com.google.maps.model.DistanceMatrix;
+import com.google.maps.model.DistanceMatrixElement;
+import com.google.maps.model.DistanceMatrixElementStatus;
 import com.google.maps.PlacesApi;
 import com.google.maps.DirectionsApi;
 import com.google.maps.model.PlaceDetails;
 import com.google.maps.model.TravelMode;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
 import java.time.Instant;
-import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class DataRequest pulls data from google about the specifed addresses inputted by the user.
+ * It keeps no state of a single request, so one instance can be shared by many worker threads.
+ * Travel times asked again for the traffic skip the caches, they only share the throttle.
  */
-public class DataRequest {
-    private double METER_PER_MILE = 1609.34;
-    private DirectionsResult mapResult = null;
-    private PlaceDetails destDetails = null;
-    private PlaceDetails originDetails = null;
+public class DataRequest implements MapDataSource, TravelTimeSource {
+    private final static double METER_PER_MILE = 1609.34;
+    public final static String PLACE_CACHE_FILE = "PlaceCache.se";
+    public final static String ADDRESS_INDEX_FILE = "AddressIndex.se";
+    private final static long CONNECT_TIMEOUT_SEC = 5;
+    private final static long READ_TIMEOUT_SEC = 10;
     private GeoApiContext context;
-    private String destinationID = "";
-    private String originID = "";
-    private String destName = "Invalid";
-    private String originName = "Invalid";
-    private long durationSec = 0;
-    private long distanceMeter;
-    private float rating = 0;
-    private String startAddress = "Invalid Address";
-    private String endAddress = "Invalid Address";
-    private String[] openPeriod = {"NAN"};
-    private String priceLevel = "NAN";
-    private String destPlaceType = "NAN";
+    private RouteCache routeCache;
+    private PlaceDetailsCache placeCache;
+    private AddressIndex addressIndex;
+    private ApiThrottle throttle;
+    private boolean isAllModes = false;
 
     /**
      * Constructor for the class.
@@ -38,7 +50,66 @@ public class DataRequest {
      * @param apiKey required key to call google API
      */
     public DataRequest(String apiKey) {
-        context = new GeoApiContext.Builder().apiKey(apiKey).build();
+        this(apiKey, new RouteCache(), new PlaceDetailsCache(PLACE_CACHE_FILE));
+    }
+
+    /**
+     * Constructor for the class with given caches.
+     *
+     * @param apiKey     required key to call google API
+     * @param routeCache cache of recent routes
+     * @param placeCache cache of place details
+     */
+    public DataRequest(String apiKey, RouteCache routeCache, PlaceDetailsCache placeCache) {
+        this(apiKey, null, routeCache, placeCache, new AddressIndex(ADDRESS_INDEX_FILE));
+    }
+
+    /**
+     * Constructor for the class that sends requests to another server, such as MockMapsServer.
+     *
+     * @param apiKey       required key to call google API
+     * @param baseUrl      url of the server, null to use google
+     * @param routeCache   cache of recent routes
+     * @param placeCache   cache of place details
+     * @param addressIndex place IDs of known addresses
+     * @throws IllegalStateException when the url of the server can not be set
+     */
+    public DataRequest(String apiKey, String baseUrl, RouteCache routeCache, PlaceDetailsCache placeCache,
+                       AddressIndex addressIndex) {
+        context = createContext(apiKey, baseUrl);
+        throttle = new ApiThrottle();
+        this.routeCache = routeCache;
+        this.placeCache = placeCache;
+        this.addressIndex = addressIndex;
+    }
+
+    /**
+     * Creates the context of google API calls.
+     *
+     * @param apiKey  required key to call google API
+     * @param baseUrl url of the server, null to use google
+     * @return the context
+     * @throws IllegalStateException when the url of the server can not be set
+     */
+    private static GeoApiContext createContext(String apiKey, String baseUrl) {
+        // quota errors are retried by ApiThrottle with backoff, not by the library
+        GeoApiContext.Builder builder = new GeoApiContext.Builder().apiKey(apiKey)
+                .connectTimeout(CONNECT_TIMEOUT_SEC, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SEC, TimeUnit.SECONDS)
+                .setIfExceptionIsAllowedToRetry(OverQueryLimitException.class, false);
+        if (baseUrl != null) {
+            // the library only lets tests change the url, so the package private setter is called directly.
+            // Going on without it would send the calls meant for the other server to google.
+            try {
+                Method setBaseUrlMethod = GeoApiContext.Builder.class.getDeclaredMethod("baseUrlOverride",
+                        String.class);
+                setBaseUrlMethod.setAccessible(true);
+                setBaseUrlMethod.invoke(builder, baseUrl);
+            } catch (ReflectiveOperationException x) {
+                throw new IllegalStateException("Can not send requests to " + baseUrl, x);
+            }
+        }
+        return builder.build();
     }
 
     /**
@@ -48,154 +119,300 @@ public class DataRequest {
      * @param destination Ending destination
      * @param travelMode  Mode of transportation
      * @param arrivalTime Time that user must be at event
+     * @return the information of the trip or null if google found no such trip
+     * @throws MapDataUnavailableException when google could not be reached or failed on its side
      */
-    public boolean requestMapData(String origin, String destination, String travelMode, GregorianCalendar arrivalTime) {
+    @Override
+    public RouteInfo requestMapData(String origin, String destination, String travelMode,
+                                    GregorianCalendar arrivalTime) {
         Instant time = arrivalTime.toInstant();
-        resetDetail();
+        String originQuery = addressIndex.toQuery(origin);
+        String destinationQuery = addressIndex.toQuery(destination);
+        String routeKey = RouteCache.createKey(originQuery, destinationQuery, travelMode, arrivalTime);
+        DirectionsResult cachedResult = routeCache.get(routeKey);
+        Map<String, Long> cachedDurations = isAllModes ? routeCache.getModeDurations(routeKey) : null;
+        // the modes are compared while the route is requested, unless the cache already holds both
+        boolean isModeRequested = isAllModes && (cachedResult == null || cachedDurations == null);
+        AtomicBoolean isModeRequestFailed = new AtomicBoolean(false);
+        CompletableFuture<Map<String, Long>> modeRequest;
+        if (isModeRequested) {
+            modeRequest = requestModeDurations(originQuery, destinationQuery, time, isModeRequestFailed);
+        } else {
+            modeRequest = CompletableFuture.completedFuture(isAllModes ? cachedDurations : Collections.emptyMap());
+        }
         try {
-            DirectionsApiRequest mapRequest = DirectionsApi.getDirections(context, origin, destination)
-                    .mode(TravelMode.valueOf(travelMode)).arrivalTime(time);
-            mapResult = mapRequest.await();
-            saveMapInformation();
-            return requestPlaceDetail();
+            DirectionsResult mapResult = cachedResult;
+            boolean isCached = mapResult != null;
+            if (!isCached) {
+                mapResult = throttle.submit(() -> DirectionsApi.getDirections(context,
+                        originQuery, destinationQuery).mode(TravelMode.valueOf(travelMode)).arrivalTime(time)).join();
+            }
+            DirectionsLeg leg = mapResult.routes[0].legs[0];
+            String originID = mapResult.geocodedWaypoints[0].placeId;
+            String destinationID = mapResult.geocodedWaypoints[1].placeId;
+            String placeKey = RouteCache.createKey(AddressIndex.PLACE_ID_PREFIX + originID,
+                    AddressIndex.PLACE_ID_PREFIX + destinationID, travelMode, arrivalTime);
+            if (!isCached) {
+                routeCache.put(routeKey, mapResult);
+                routeCache.put(placeKey, mapResult);
+                learnAddresses(origin, destination, leg, originID, destinationID);
+            }
+            RouteInfo info = requestPlaceDetail(mapResult, leg, originID, destinationID, modeRequest);
+            if (info != null && isModeRequested && !isModeRequestFailed.get()) {
+                routeCache.putModeDurations(routeKey, info.getModeDurations());
+                routeCache.putModeDurations(placeKey, info.getModeDurations());
+            }
+            return info;
+        } catch (MapDataUnavailableException e) {
+            throw e;
         } catch (Exception e) {
-            return false;
+            if (isUnavailable(e)) {
+                throw new MapDataUnavailableException(e);
+            }
+            // a mistyped or partial address, google answered but found no trip
+            return null;
         }
-
     }
 
-    private void resetDetail() {
-        openPeriod = new String[1];
-        openPeriod[0] = "NAN";
-        priceLevel = "NAN";
-        destPlaceType = "NAN";
-        destinationID = "";
-        originID = "";
-        destName = "Invalid";
-        originName = "Invalid";
-        durationSec = 0;
-        distanceMeter = 0;
-        rating = 0;
-        startAddress = "Invalid Address";
-        endAddress = "Invalid Address";
+    /**
+     * Checks if a call failed because google could not be reached or failed on its side, not because of the request.
+     *
+     * @param e error of the call
+     * @return true for network errors, timeouts, quota errors and server errors
+     */
+    static boolean isUnavailable(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e instanceof IOException || e instanceof OverQueryLimitException
+                || e instanceof OverDailyLimitException || e instanceof UnknownErrorException;
     }
 
     /**
-     * Saves the destDetails of the event specified by the user.
+     * Makes a Google API call for the travel time when leaving at a time, without the route cache.
+     * Driving times are read from the duration in traffic, google only gives one for a departure time.
+     *
+     * @param origin        Beginning destination
+     * @param destination   Ending destination
+     * @param travelMode    Mode of transportation
+     * @param departureTime Time the user leaves, not before now
+     * @return travel time in seconds or -1 if google found no such trip
+     * @throws MapDataUnavailableException when google could not be reached or failed on its side
      */
-    private void savePlaceDetailsInfo() {
-        originName = originDetails.name;
-        destName = destDetails.name;
-
-
+    @Override
+    public long requestTravelTime(String origin, String destination, String travelMode,
+                                  GregorianCalendar departureTime) {
+        Instant time = departureTime.toInstant();
+        String originQuery = addressIndex.toQuery(origin);
+        String destinationQuery = addressIndex.toQuery(destination);
         try {
-            rating = destDetails.rating;
+            DirectionsResult mapResult = throttle.submit(() -> DirectionsApi.getDirections(context,
+                    originQuery, destinationQuery).mode(TravelMode.valueOf(travelMode)).departureTime(time)).join();
+            DirectionsLeg leg = mapResult.routes[0].legs[0];
+            return leg.durationInTraffic != null ? leg.durationInTraffic.inSeconds : leg.duration.inSeconds;
         } catch (Exception e) {
+            if (isUnavailable(e)) {
+                throw new MapDataUnavailableException(e);
+            }
+            return -1;
         }
-        try {
-            openPeriod = destDetails.openingHours.weekdayText;
-        } catch (Exception e) {
-        }
-        try {
-            priceLevel = destDetails.priceLevel.toString();
-        } catch (Exception e2) {
-        }
-        try {
-            destPlaceType = mapResult.geocodedWaypoints[1].types.toString();
-        } catch (Exception e3) {
+    }
+
+    /**
+     * Remembers the place IDs of the typed addresses and of the addresses google found, then saves them in one write.
+     *
+     * @param origin        typed beginning destination
+     * @param destination   typed ending destination
+     * @param leg           the leg from origin to destination
+     * @param originID      google place ID of the origin
+     * @param destinationID google place ID of the destination
+     */
+    private void learnAddresses(String origin, String destination, DirectionsLeg leg,
+                                String originID, String destinationID) {
+        addressIndex.learn(origin, originID);
+        addressIndex.learn(leg.startAddress, originID);
+        addressIndex.learn(destination, destinationID);
+        addressIndex.learn(leg.endAddress, destinationID);
+        addressIndex.saveIfChanged();
+    }
+
+    /**
+     * Makes Distance Matrix API calls for every mode of transportation at the same time,
+     * so comparing all modes costs one round trip of waiting.
+     *
+     * @param origin      Beginning destination
+     * @param destination Ending destination
+     * @param time        Time that user must be at event
+     * @param isFailed    set when a call failed, so the times are not complete enough to be cached
+     * @return travel time in seconds of each mode that google found a route for
+     */
+    private CompletableFuture<Map<String, Long>> requestModeDurations(String origin, String destination,
+                                                                      Instant time, AtomicBoolean isFailed) {
+        Map<String, Long> modeDurations = Collections.synchronizedMap(new HashMap<>());
+        TravelMode[] modes = {TravelMode.DRIVING, TravelMode.TRANSIT, TravelMode.BICYCLING, TravelMode.WALKING};
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[modes.length];
+        for (int i = 0; i < modes.length; i++) {
+            TravelMode mode = modes[i];
+            requests[i] = throttle.submit(() -> DistanceMatrixApi.getDistanceMatrix(context,
+                    new String[]{origin}, new String[]{destination}).mode(mode).arrivalTime(time))
+                    .handle((matrix, e) -> {
+                        if (e != null) {
+                            isFailed.set(true);
+                        }
+                        if (matrix != null) {
+                            DistanceMatrixElement element = matrix.rows[0].elements[0];
+                            if (element.status == DistanceMatrixElementStatus.OK) {
+                                modeDurations.put(mode.name(), element.duration.inSeconds);
+                            }
+                        }
+                        return null;
+                    });
         }
+        return CompletableFuture.allOf(requests).thenApply(done -> modeDurations);
     }
 
     /**
-     * Makes Place API call.
+     * Makes Place API calls. Origin and destination are requested at the same time,
+     * so the wait is the slower of the two calls instead of their sum.
+     *
+     * @param mapResult     route returned by google
+     * @param leg           the leg from origin to destination
+     * @param originID      google place ID of the origin
+     * @param destinationID google place ID of the destination
+     * @param modeRequest   travel time of each mode of transportation once it arrives
+     * @return the information of the trip or null if google found no such place
+     * @throws MapDataUnavailableException when google could not be reached or failed on its side
      */
-    private boolean requestPlaceDetail() {
+    private RouteInfo requestPlaceDetail(DirectionsResult mapResult, DirectionsLeg leg, String originID,
+                                         String destinationID, CompletableFuture<Map<String, Long>> modeRequest) {
+        CompletableFuture<PlaceDetails> destRequest = requestPlace(destinationID);
+        CompletableFuture<PlaceDetails> originRequest = requestPlace(originID);
         try {
-            destDetails = PlacesApi.placeDetails(context, destinationID).await();
-            originDetails = PlacesApi.placeDetails(context, originID).await();
-            savePlaceDetailsInfo();
-            return true;
+            PlaceDetails destDetails = destRequest.join();
+            PlaceDetails originDetails = originRequest.join();
+            return createRouteInfo(mapResult, leg, originID, destinationID, originDetails, destDetails,
+                    modeRequest.join());
         } catch (Exception e) {
-            return false;
+            if (isUnavailable(e)) {
+                throw new MapDataUnavailableException(e);
+            }
+            return null;
         }
     }
 
     /**
-     * Saves all necessary information.
+     * Gets details of a place from the cache or starts an asynchronous google call if they are not cached.
+     *
+     * @param placeId google place ID
+     * @return details of the place once they arrive
      */
-    private void saveMapInformation() {
-        durationSec = mapResult.routes[0].legs[0].duration.inSeconds;
-        distanceMeter = mapResult.routes[0].legs[0].distance.inMeters;
-        destinationID = mapResult.geocodedWaypoints[1].placeId;
-        originID = mapResult.geocodedWaypoints[0].placeId;
-        startAddress = mapResult.routes[0].legs[0].startAddress;
-        endAddress = mapResult.routes[0].legs[0].endAddress;
+    private CompletableFuture<PlaceDetails> requestPlace(String placeId) {
+        PlaceDetails cachedDetails = placeCache.get(placeId);
+        if (cachedDetails != null) {
+            return CompletableFuture.completedFuture(cachedDetails);
+        }
+        return throttle.submit(() -> PlacesApi.placeDetails(context, placeId))
+                .thenApply(details -> {
+                    placeCache.put(placeId, details);
+                    return details;
+                });
     }
 
     /**
-     * Accessor for originName.
+     * Collects all necessary information of the trip.
      *
-     * @return name of beginning destination
+     * @param mapResult     route returned by google
+     * @param leg           the leg from origin to destination
+     * @param originID      google place ID of the origin
+     * @param destinationID google place ID of the destination
+     * @param originDetails details of the origin
+     * @param destDetails   details of the destination
+     * @param modeDurations travel time in seconds of each mode of transportation
+     * @return the information of the trip
      */
-    public String getOriginName() {
-        return originName;
+    private RouteInfo createRouteInfo(DirectionsResult mapResult, DirectionsLeg leg, String originID,
+                                      String destinationID, PlaceDetails originDetails, PlaceDetails destDetails,
+                                      Map<String, Long> modeDurations) {
+        float rating = 0;
+        String[] openPeriod = {"NAN"};
+        String priceLevel = "NAN";
+        String destPlaceType = "NAN";
+        try {
+            rating = destDetails.rating;
+        } catch (Exception e) {
+        }
+        try {
+            if (destDetails.openingHours.weekdayText != null) {
+                openPeriod = destDetails.openingHours.weekdayText;
+            }
+        } catch (Exception e) {
+        }
+        try {
+            priceLevel = destDetails.priceLevel.toString();
+        } catch (Exception e2) {
+        }
+        try {
+            destPlaceType = mapResult.geocodedWaypoints[1].types.toString();
+        } catch (Exception e3) {
+        }
+        GooglePlaceInfo placeInfo = new GooglePlaceInfo(originID, destinationID, openPeriod,
+                priceLevel, destPlaceType, rating);
+        return new RouteInfo(originDetails.name, destDetails.name, leg.duration.inSeconds,
+                (int) (leg.distance.inMeters / METER_PER_MILE), rating,
+                leg.startAddress, leg.endAddress, placeInfo, modeDurations);
     }
 
     /**
-     * Accessor for distance in mile.
+     * Sets whether the travel time of every mode of transportation is requested with each trip.
      *
-     * @return the distance from beginning destination to ending destination
+     * @param isAllModes true to compare all modes
      */
-    public int getDistance() {
-        return (int) (distanceMeter / METER_PER_MILE);
+    public void setAllModes(boolean isAllModes) {
+        this.isAllModes = isAllModes;
     }
 
     /**
-     * Accessor for destName.
+     * Sets the throttle that all calls of this data request go through.
      *
-     * @return the name of ending destination
+     * @param throttle the throttle
      */
-    public String getDestName() {
-        return destName;
+    public void setThrottle(ApiThrottle throttle) {
+        this.throttle = throttle;
     }
 
     /**
-     * Accessor for Rating.
+     * Accessor for throttle.
      *
-     * @return the rate of the destination given by google
+     * @return the throttle that all calls of this data request go through
      */
-    public float getRating() {
-        return rating;
+    public ApiThrottle getThrottle() {
+        return throttle;
     }
 
     /**
-     * Accessor for DurationSec.
+     * Accessor for routeCache.
      *
-     * @return how long the travel time is to get from starting destination to ending destination
+     * @return cache of recent routes
      */
-    public long getDurationSec() {
-        return durationSec;
+    public RouteCache getRouteCache() {
+        return routeCache;
     }
 
     /**
-     * Accessor for StartAddress.
+     * Accessor for addressIndex.
      *
-     * @return the starting address
+     * @return place IDs of known addresses
      */
-    public String getStartAddress() {
-        return startAddress;
+    public AddressIndex getAddressIndex() {
+        return addressIndex;
     }
 
     /**
-     * Accessor for EndAddress.
+     * Accessor for placeCache.
      *
-     * @return the ending address
+     * @return cache of place details
      */
-    public String getEndAddress() {
-        return endAddress;
-    }
-
-    public GooglePlaceInfo getGooglePlaceInfo() {
-        return new GooglePlaceInfo(originID, destinationID, openPeriod, priceLevel, destPlaceType, rating);
+    public PlaceDetailsCache getPlaceCache() {
+        return placeCache;
     }
 }
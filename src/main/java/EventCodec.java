@@ -0,0 +1,416 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+
+/**
+ * Class EventCodec writes events in a compact binary format instead of java serialization, which stores
+ * a date format, two full calendars and class descriptions with every event.
+ * <p>
+ * Format: magic "CEVT", version, string table, number of events, events. Numbers are varints, times are
+ * epoch milliseconds with the id of their time zone, and every string is an index in the string table,
+ * so addresses and names used by many events are stored once. When read, the strings of the table are
+ * swapped for their StringPool instance, so events read from different files or records share them too.
+ * Files written by java serialization are still read, so old save files migrate the next time they are saved.
+ */
+public class EventCodec {
+    public final static int VERSION = 1;
+    private final static byte[] MAGIC = {'C', 'E', 'V', 'T'};
+    private final static int JAVA_SERIALIZATION_MAGIC = 0xACED;
+    private final static int WITHOUT_INFO = 0;
+    private final static int WITH_INFO = 1;
+
+    /**
+     * Writes events.
+     *
+     * @param out    where the events are written
+     * @param events events to write
+     * @throws IOException when the events can not be written
+     */
+    public static void write(OutputStream out, Collection<CalendarEvent> events) throws IOException {
+        LinkedHashMap<String, Integer> stringTable = new LinkedHashMap<>();
+        for (CalendarEvent event : events) {
+            collectStrings(event, stringTable);
+        }
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.write(MAGIC);
+        writeVarLong(data, VERSION);
+        writeVarLong(data, stringTable.size());
+        for (String str : stringTable.keySet()) {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(data, bytes.length);
+            data.write(bytes);
+        }
+        writeVarLong(data, events.size());
+        for (CalendarEvent event : events) {
+            writeEvent(data, event, stringTable);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads events written by write, or a map of events written by java serialization.
+     *
+     * @param in where the events are read
+     * @return the events
+     * @throws IOException when the events can not be read
+     */
+    public static List<CalendarEvent> read(InputStream in) throws IOException {
+        ArrayList<CalendarEvent> events = new ArrayList<>();
+        read(in, Integer.MAX_VALUE, events::addAll);
+        return events;
+    }
+
+    /**
+     * Reads events in batches, so the first events can be used before the last are read.
+     * Events written by java serialization come in one batch.
+     *
+     * @param in        where the events are read
+     * @param batchSize most events in a batch
+     * @param batches   gets every batch of events in the order they were written
+     * @throws IOException when the events can not be read
+     */
+    public static void read(InputStream in, int batchSize, Consumer<List<CalendarEvent>> batches)
+            throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        data.mark(MAGIC.length);
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (((magic[0] & 0xFF) << 8 | (magic[1] & 0xFF)) == JAVA_SERIALIZATION_MAGIC) {
+            data.reset();
+            batches.accept(readJavaSerialization(data));
+            return;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("Not an event file");
+            }
+        }
+        int version = (int) readVarLong(data);
+        if (version > VERSION) {
+            throw new IOException("Event file version " + version + " is newer than " + VERSION);
+        }
+        String[] stringTable = new String[(int) readVarLong(data)];
+        for (int i = 0; i < stringTable.length; i++) {
+            byte[] bytes = new byte[(int) readVarLong(data)];
+            data.readFully(bytes);
+            stringTable[i] = StringPool.intern(new String(bytes, StandardCharsets.UTF_8));
+        }
+        int count = (int) readVarLong(data);
+        ArrayList<CalendarEvent> batch = new ArrayList<>(Math.min(count, batchSize));
+        for (int i = 0; i < count; i++) {
+            batch.add(readEvent(data, stringTable));
+            if (batch.size() >= batchSize) {
+                batches.accept(batch);
+                batch = new ArrayList<>(Math.min(count - i - 1, batchSize));
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.accept(batch);
+        }
+    }
+
+    /**
+     * Writes events to bytes.
+     *
+     * @param events events to write
+     * @return the bytes
+     */
+    public static byte[] encode(Collection<CalendarEvent> events) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(bytes, events);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads events from bytes written by encode.
+     *
+     * @param bytes the bytes
+     * @return the events
+     * @throws IOException when the bytes are not valid
+     */
+    public static List<CalendarEvent> decode(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Reads a map of events written by java serialization in older versions.
+     *
+     * @param data where the events are read
+     * @return the events
+     * @throws IOException when the events can not be read
+     */
+    private static List<CalendarEvent> readJavaSerialization(InputStream data) throws IOException {
+        try {
+            ObjectInputStream inputStream = new ObjectInputStream(data);
+            Map<?, ?> savedEvents = (Map<?, ?>) inputStream.readObject();
+            ArrayList<CalendarEvent> events = new ArrayList<>(savedEvents.size());
+            for (Object savedEvent : savedEvents.values()) {
+                events.add((CalendarEvent) savedEvent);
+            }
+            // java serialization makes a copy of every string, share them like the strings of the string table
+            for (CalendarEvent event : events) {
+                event.addressFrom = StringPool.intern(event.addressFrom);
+                event.addressTo = StringPool.intern(event.addressTo);
+                event.originName = StringPool.intern(event.originName);
+                event.destName = StringPool.intern(event.destName);
+            }
+            return events;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not an event file", e);
+        }
+    }
+
+    /**
+     * Adds the strings of an event to the string table.
+     *
+     * @param event       the event
+     * @param stringTable strings and their index
+     */
+    private static void collectStrings(CalendarEvent event, Map<String, Integer> stringTable) {
+        addString(event.addressFrom, stringTable);
+        addString(event.addressTo, stringTable);
+        addString(event.eventName, stringTable);
+        addString(event.originName, stringTable);
+        addString(event.destName, stringTable);
+        addString(event.transport == null ? null : event.transport.toString(), stringTable);
+        addString(event.arrivalDateTime.getTimeZone().getID(), stringTable);
+        if (event instanceof EventWithInfo) {
+            EventWithInfo eventWithInfo = (EventWithInfo) event;
+            if (eventWithInfo.getModeDurations() != null) {
+                for (String mode : eventWithInfo.getModeDurations().keySet()) {
+                    addString(mode, stringTable);
+                }
+            }
+            GooglePlaceInfo placeInfo = eventWithInfo.getPlaceInfo();
+            if (placeInfo != null) {
+                addString(placeInfo.getOriginID(), stringTable);
+                addString(placeInfo.getDestinationID(), stringTable);
+                addString(placeInfo.getDestPriceLevel(), stringTable);
+                addString(placeInfo.getDestPlaceType(), stringTable);
+                if (placeInfo.getOpenPeriod() != null) {
+                    for (String period : placeInfo.getOpenPeriod()) {
+                        addString(period, stringTable);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addString(String str, Map<String, Integer> stringTable) {
+        if (str != null && !stringTable.containsKey(str)) {
+            stringTable.put(str, stringTable.size());
+        }
+    }
+
+    /**
+     * Writes one event.
+     *
+     * @param data        where the event is written
+     * @param event       the event
+     * @param stringTable strings and their index
+     * @throws IOException when the event can not be written
+     */
+    private static void writeEvent(DataOutputStream data, CalendarEvent event, Map<String, Integer> stringTable)
+            throws IOException {
+        boolean hasInfo = event instanceof EventWithInfo;
+        data.writeByte(hasInfo ? WITH_INFO : WITHOUT_INFO);
+        writeString(data, event.addressFrom, stringTable);
+        writeString(data, event.addressTo, stringTable);
+        writeString(data, event.eventName, stringTable);
+        writeString(data, event.originName, stringTable);
+        writeString(data, event.destName, stringTable);
+        writeString(data, event.arrivalDateTime.getTimeZone().getID(), stringTable);
+        long arrivalMillis = event.arrivalDateTime.getTimeInMillis();
+        writeVarLong(data, zigZag(arrivalMillis));
+        writeVarLong(data, zigZag(arrivalMillis - event.alarmTime.getTimeInMillis()));
+        writeVarLong(data, zigZag(event.recommendedReadyMin));
+        data.writeDouble(event.importantScale);
+        data.writeBoolean(event.isAlarmCorrected);
+        writeString(data, event.transport == null ? null : event.transport.toString(), stringTable);
+        if (event.transport != null) {
+            writeVarLong(data, zigZag(event.transport.durationInSec));
+            writeVarLong(data, zigZag(event.transport.distance));
+        }
+        if (!hasInfo) {
+            return;
+        }
+        EventWithInfo eventWithInfo = (EventWithInfo) event;
+        data.writeDouble(eventWithInfo.getAverageRating());
+        Map<String, Long> modeDurations = eventWithInfo.getModeDurations();
+        writeVarLong(data, modeDurations == null ? 0 : modeDurations.size());
+        if (modeDurations != null) {
+            for (Map.Entry<String, Long> modeDuration : modeDurations.entrySet()) {
+                writeString(data, modeDuration.getKey(), stringTable);
+                writeVarLong(data, zigZag(modeDuration.getValue()));
+            }
+        }
+        GooglePlaceInfo placeInfo = eventWithInfo.getPlaceInfo();
+        data.writeBoolean(placeInfo != null);
+        if (placeInfo != null) {
+            writeString(data, placeInfo.getOriginID(), stringTable);
+            writeString(data, placeInfo.getDestinationID(), stringTable);
+            writeString(data, placeInfo.getDestPriceLevel(), stringTable);
+            writeString(data, placeInfo.getDestPlaceType(), stringTable);
+            data.writeFloat(placeInfo.getDestinationRating());
+            String[] openPeriod = placeInfo.getOpenPeriod();
+            // 0 means no opening hours, otherwise the number of days plus one
+            writeVarLong(data, openPeriod == null ? 0 : openPeriod.length + 1);
+            if (openPeriod != null) {
+                for (String period : openPeriod) {
+                    writeString(data, period, stringTable);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads one event.
+     *
+     * @param data        where the event is read
+     * @param stringTable strings by index
+     * @return the event
+     * @throws IOException when the event can not be read
+     */
+    private static CalendarEvent readEvent(DataInputStream data, String[] stringTable) throws IOException {
+        int kind = data.readByte();
+        String addressFrom = readString(data, stringTable);
+        String addressTo = readString(data, stringTable);
+        String eventName = readString(data, stringTable);
+        String originName = readString(data, stringTable);
+        String destName = readString(data, stringTable);
+        TimeZone timeZone = TimeZone.getTimeZone(readString(data, stringTable));
+        GregorianCalendar arrival = new GregorianCalendar(timeZone);
+        arrival.setTimeInMillis(unZigZag(readVarLong(data)));
+        GregorianCalendar alarm = new GregorianCalendar(timeZone);
+        alarm.setTimeInMillis(arrival.getTimeInMillis() - unZigZag(readVarLong(data)));
+        int recommendedReadyMin = (int) unZigZag(readVarLong(data));
+        double importantScale = data.readDouble();
+        boolean isAlarmCorrected = data.readBoolean();
+        String transportType = readString(data, stringTable);
+        int durationSec = 0;
+        int distance = 0;
+        if (transportType != null) {
+            durationSec = (int) unZigZag(readVarLong(data));
+            distance = (int) unZigZag(readVarLong(data));
+        }
+
+        CalendarEvent event;
+        if (kind == WITH_INFO) {
+            double averageRating = data.readDouble();
+            int modeCount = (int) readVarLong(data);
+            HashMap<String, Long> modeDurations = new HashMap<>();
+            for (int i = 0; i < modeCount; i++) {
+                String mode = readString(data, stringTable);
+                modeDurations.put(mode, unZigZag(readVarLong(data)));
+            }
+            GooglePlaceInfo placeInfo = null;
+            if (data.readBoolean()) {
+                String originID = readString(data, stringTable);
+                String destinationID = readString(data, stringTable);
+                String priceLevel = readString(data, stringTable);
+                String placeType = readString(data, stringTable);
+                float rating = data.readFloat();
+                int periodCount = (int) readVarLong(data);
+                String[] openPeriod = periodCount == 0 ? null : new String[periodCount - 1];
+                for (int i = 0; i < periodCount - 1; i++) {
+                    openPeriod[i] = readString(data, stringTable);
+                }
+                placeInfo = new GooglePlaceInfo(originID, destinationID, openPeriod, priceLevel, placeType, rating);
+            }
+            EventWithInfo eventWithInfo = new EventWithInfo(placeInfo, addressFrom, addressTo, eventName,
+                    originName, destName, arrival, transportType, durationSec, distance, importantScale,
+                    averageRating);
+            if (modeCount > 0) {
+                eventWithInfo.setModeDurations(modeDurations);
+            }
+            event = eventWithInfo;
+        } else if (kind == WITHOUT_INFO && transportType != null) {
+            event = new EventWithoutInfo(addressFrom, addressTo, eventName, arrival, transportType, importantScale);
+        } else if (kind == WITHOUT_INFO) {
+            event = new EventWithoutInfo(addressFrom, addressTo, eventName, arrival, (Transportation) null,
+                    importantScale);
+        } else {
+            throw new IOException("Unknown event kind " + kind);
+        }
+        event.originName = originName;
+        event.destName = destName;
+        event.recommendedReadyMin = recommendedReadyMin;
+        event.alarmTime = alarm;
+        event.isAlarmCorrected = isAlarmCorrected;
+        event.dateTimeFormat.setTimeZone(timeZone);
+        return event;
+    }
+
+    private static void writeString(DataOutputStream data, String str, Map<String, Integer> stringTable)
+            throws IOException {
+        writeVarLong(data, str == null ? 0 : stringTable.get(str) + 1);
+    }
+
+    private static String readString(DataInputStream data, String[] stringTable) throws IOException {
+        int index = (int) readVarLong(data);
+        if (index < 0 || index > stringTable.length) {
+            throw new IOException("Bad string index " + index);
+        }
+        return index == 0 ? null : stringTable[index - 1];
+    }
+
+    /**
+     * Writes a number that is not negative in 7 bit groups, small numbers take one byte.
+     *
+     * @param data  where the number is written
+     * @param value the number
+     * @throws IOException when the number can not be written
+     */
+    static void writeVarLong(DataOutput data, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    /**
+     * Reads a number written by writeVarLong.
+     *
+     * @param data where the number is read
+     * @return the number
+     * @throws IOException when the number can not be read
+     */
+    static long readVarLong(DataInput data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+
+    /**
+     * Maps signed numbers to numbers that are not negative so small negative numbers stay short.
+     *
+     * @param value signed number
+     * @return number that is not negative
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
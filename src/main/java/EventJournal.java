@@ -0,0 +1,501 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Class EventJournal saves every change of the events as it happens by appending a record to a journal file,
+ * so saving costs as much as the change.
+ * A background thread writes all records waiting at the same time in one group and forces them to disk
+ * according to the fsync policy. Changes still waiting for the writer can be lost by a crash, sync waits
+ * until they are on disk. When the journal grows too big it is folded into a new snapshot file
+ * and started again empty.
+ * <p>
+ * Each record is: length, type, arrival time in epoch milliseconds, event written by EventCodec, CRC32 checksum.
+ * A record cut short by a crash fails its checksum and ends the replay.
+ */
+public class EventJournal {
+    public final static byte ADD = 1;
+    public final static byte REMOVE = 2;
+    public final static byte EDIT = 3;
+    public final static long DEFAULT_COMPACT_BYTES = 1024 * 1024;
+    public final static long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
+    private final static int CHECKSUM_BYTES = 4;
+    // type, arrival time and checksum of a record without event
+    private final static int MIN_RECORD_BYTES = 1 + 8 + CHECKSUM_BYTES;
+    private File journalFile;
+    private FsyncPolicy fsyncPolicy;
+    private long compactBytes;
+    private FileChannel channel;
+    private LinkedBlockingQueue<Object> pending;
+    private Thread writer;
+    private volatile long journalBytes;
+    private long lastFsyncMillis;
+    // written but not forced yet
+    private boolean isDirty = false;
+    private long groupCount = 0;
+    private volatile long fsyncCount = 0;
+    private long compactionCount = 0;
+    private volatile boolean isCompacting = false;
+
+    /**
+     * When the journal is forced to disk.
+     */
+    public enum FsyncPolicy {
+        /**
+         * Right after every group of records is written, only changes still waiting for the writer may be lost.
+         */
+        ALWAYS,
+        /**
+         * Once per interval when something was written, up to an interval of changes may be lost
+         * by a power failure.
+         */
+        INTERVAL,
+        /**
+         * Left to the operating system.
+         */
+        NEVER
+    }
+
+    /**
+     * Constructor for the class with default limits.
+     *
+     * @param filePath    file path of the journal
+     * @param fsyncPolicy when the journal is forced to disk
+     * @throws IOException when the journal can not be opened
+     */
+    public EventJournal(String filePath, FsyncPolicy fsyncPolicy) throws IOException {
+        this(filePath, fsyncPolicy, DEFAULT_COMPACT_BYTES);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param filePath     file path of the journal
+     * @param fsyncPolicy  when the journal is forced to disk
+     * @param compactBytes size of the journal that starts a compaction
+     * @throws IOException when the journal can not be opened
+     */
+    public EventJournal(String filePath, FsyncPolicy fsyncPolicy, long compactBytes) throws IOException {
+        this.journalFile = new File(filePath);
+        this.fsyncPolicy = fsyncPolicy;
+        this.compactBytes = compactBytes;
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ);
+        pending = new LinkedBlockingQueue<>();
+        journalBytes = channel.size();
+        lastFsyncMillis = System.currentTimeMillis();
+        writer = new Thread(this::writeLoop, "EventJournal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Reads all committed records of the journal. A record cut short or damaged ends the journal,
+     * it is dropped so new records follow the last good one.
+     *
+     * @return the records in the order they were written
+     * @throws IOException when the journal can not be read
+     */
+    public synchronized List<Record> readAll() throws IOException {
+        ArrayList<Record> records = new ArrayList<>();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+        long goodBytes = 0;
+        try {
+            while (true) {
+                int length = input.readInt();
+                if (length < MIN_RECORD_BYTES || length > channel.size() - goodBytes) {
+                    break;
+                }
+                byte[] body = new byte[length - CHECKSUM_BYTES];
+                input.readFully(body);
+                int checksum = input.readInt();
+                if (checksum != checksum(body)) {
+                    break;
+                }
+                records.add(Record.decode(body));
+                goodBytes += 4 + length;
+            }
+        } catch (EOFException e) {
+            // the end of the journal or a record cut short by a crash
+        } finally {
+            input.close();
+        }
+        if (goodBytes < channel.size()) {
+            channel.truncate(goodBytes);
+        }
+        journalBytes = goodBytes;
+        return records;
+    }
+
+    /**
+     * Appends a record, it is written by the background thread.
+     *
+     * @param type        ADD, REMOVE or EDIT
+     * @param arrivalTime arrival time of the event in epoch milliseconds
+     * @param event       the event after the change, null for REMOVE
+     */
+    public void append(byte type, long arrivalTime, CalendarEvent event) {
+        pending.add(new Record(type, arrivalTime, event));
+    }
+
+    /**
+     * Checks if the journal grew big enough to be folded into a snapshot.
+     *
+     * @return true if a compaction should start
+     */
+    public boolean needsCompaction() {
+        return !isCompacting && journalBytes >= compactBytes;
+    }
+
+    /**
+     * Folds the journal into a snapshot in the background. The snapshot must hold exactly the changes
+     * appended before this call, records appended later go to the emptied journal.
+     *
+     * @param events       all events at the time of the call
+     * @param snapshotFile the snapshot file to replace
+     */
+    public void compact(List<CalendarEvent> events, File snapshotFile) {
+        isCompacting = true;
+        pending.add(new Compaction(events, snapshotFile));
+    }
+
+    /**
+     * Waits until every record appended before the call is written and forced to disk.
+     *
+     * @throws IOException when a record or compaction before the call could not be written
+     */
+    public void sync() throws IOException {
+        Sync sync = new Sync();
+        pending.add(sync);
+        try {
+            sync.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (sync.isFailed) {
+            throw new IOException("The journal could not be written, see the error printed before");
+        }
+    }
+
+    /**
+     * Writes groups of records until the program ends. With the interval policy the writer wakes up
+     * when the interval is over, so the last group written is forced even if nothing follows it.
+     */
+    private void writeLoop() {
+        ArrayList<Object> group = new ArrayList<>();
+        while (true) {
+            try {
+                Object item;
+                if (fsyncPolicy == FsyncPolicy.INTERVAL && isDirty) {
+                    long waitMillis = lastFsyncMillis + DEFAULT_FSYNC_INTERVAL_MILLIS - System.currentTimeMillis();
+                    item = pending.poll(Math.max(waitMillis, 0), TimeUnit.MILLISECONDS);
+                    if (item == null) {
+                        force();
+                        continue;
+                    }
+                } else {
+                    item = pending.take();
+                }
+                group.add(item);
+                pending.drainTo(group);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                // the waiting threads were told by writeGroup, the writer goes on with the next group
+                e.printStackTrace();
+            }
+            group.clear();
+        }
+    }
+
+    /**
+     * Writes one group of records with a single write, then forces it to disk if the policy asks for it.
+     *
+     * @param group records, compactions and sync requests in the order they were added
+     * @throws IOException when the journal can not be written
+     */
+    private void writeGroup(ArrayList<Object> group) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ArrayList<Sync> syncs = new ArrayList<>();
+        for (Object item : group) {
+            if (item instanceof Sync) {
+                syncs.add((Sync) item);
+            }
+        }
+        boolean isFailed = false;
+        try {
+            for (Object item : group) {
+                if (item instanceof Record) {
+                    try {
+                        writeRecord((Record) item, bytes);
+                    } catch (IOException | RuntimeException e) {
+                        // one event that can not be written does not hold back the others
+                        e.printStackTrace();
+                        isFailed = true;
+                    }
+                } else if (item instanceof Compaction) {
+                    writeBytes(bytes);
+                    bytes.reset();
+                    if (!runCompaction((Compaction) item)) {
+                        isFailed = true;
+                    }
+                }
+            }
+            writeBytes(bytes);
+            groupCount++;
+            long now = System.currentTimeMillis();
+            if (fsyncPolicy == FsyncPolicy.ALWAYS || !syncs.isEmpty() || (fsyncPolicy == FsyncPolicy.INTERVAL
+                    && isDirty && now - lastFsyncMillis >= DEFAULT_FSYNC_INTERVAL_MILLIS)) {
+                force();
+            }
+        } catch (IOException | RuntimeException e) {
+            isFailed = true;
+            throw e;
+        } finally {
+            // waiting threads are released even when writing failed, the error is printed by the writer
+            for (Sync sync : syncs) {
+                sync.isFailed = isFailed;
+                sync.done.countDown();
+            }
+        }
+    }
+
+    /**
+     * Forces the written records to disk.
+     *
+     * @throws IOException when the journal can not be forced
+     */
+    private void force() throws IOException {
+        channel.force(false);
+        fsyncCount++;
+        lastFsyncMillis = System.currentTimeMillis();
+        isDirty = false;
+    }
+
+    /**
+     * Adds one record to the group.
+     *
+     * @param record the record
+     * @param bytes  the group being written
+     * @throws IOException when the event can not be serialized
+     */
+    private static void writeRecord(Record record, ByteArrayOutputStream bytes) throws IOException {
+        byte[] body = record.encode();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(body.length + CHECKSUM_BYTES);
+        out.write(body);
+        out.writeInt(checksum(body));
+    }
+
+    /**
+     * Appends bytes to the end of the journal.
+     *
+     * @param bytes bytes to append
+     * @throws IOException when the journal can not be written
+     */
+    private synchronized void writeBytes(ByteArrayOutputStream bytes) throws IOException {
+        if (bytes.size() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        journalBytes = position;
+        isDirty = true;
+    }
+
+    /**
+     * Writes the snapshot next to the old one, renames it in place and empties the journal.
+     * A crash in between only replays records the snapshot already holds, which changes nothing.
+     *
+     * @param compaction the events and the snapshot file
+     * @return true if the snapshot was written, the journal is kept otherwise
+     */
+    private synchronized boolean runCompaction(Compaction compaction) {
+        try {
+            File tempFile = new File(compaction.snapshotFile.getPath() + ".tmp");
+            EventModel.writeEvents(tempFile, compaction.events);
+            if (!tempFile.renameTo(compaction.snapshotFile)) {
+                compaction.snapshotFile.delete();
+                if (!tempFile.renameTo(compaction.snapshotFile)) {
+                    throw new IOException("Can not replace " + compaction.snapshotFile);
+                }
+            }
+            channel.truncate(0);
+            channel.force(true);
+            journalBytes = 0;
+            compactionCount++;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            isCompacting = false;
+        }
+    }
+
+    /**
+     * Calculates the checksum of a record.
+     *
+     * @param body the record without length and checksum
+     * @return the checksum
+     */
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Accessor for the size of the journal.
+     *
+     * @return bytes in the journal
+     */
+    public long getJournalBytes() {
+        return journalBytes;
+    }
+
+    /**
+     * Accessor for groupCount.
+     *
+     * @return number of groups written
+     */
+    public long getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Accessor for fsyncCount.
+     *
+     * @return number of times the journal was forced to disk
+     */
+    public long getFsyncCount() {
+        return fsyncCount;
+    }
+
+    /**
+     * Accessor for compactionCount.
+     *
+     * @return number of compactions done
+     */
+    public long getCompactionCount() {
+        return compactionCount;
+    }
+
+    /**
+     * One change of the events.
+     */
+    public static class Record {
+        private final byte type;
+        private final long arrivalTime;
+        private final CalendarEvent event;
+
+        /**
+         * Constructor for the class.
+         *
+         * @param type        ADD, REMOVE or EDIT
+         * @param arrivalTime arrival time of the event in epoch milliseconds
+         * @param event       the event after the change, null for REMOVE
+         */
+        Record(byte type, long arrivalTime, CalendarEvent event) {
+            this.type = type;
+            this.arrivalTime = arrivalTime;
+            this.event = event;
+        }
+
+        /**
+         * Writes the record without length and checksum.
+         *
+         * @return bytes of the record
+         * @throws IOException when the event can not be serialized
+         */
+        private byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeLong(arrivalTime);
+            if (event != null) {
+                EventCodec.write(out, Collections.singletonList(event));
+            }
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Reads a record written by encode.
+         *
+         * @param body bytes of the record
+         * @return the record
+         * @throws IOException when the record is damaged
+         */
+        private static Record decode(byte[] body) throws IOException {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(body));
+            byte type = input.readByte();
+            long arrivalTime = input.readLong();
+            CalendarEvent event = null;
+            if (input.available() > 0) {
+                event = EventCodec.read(input).get(0);
+            }
+            return new Record(type, arrivalTime, event);
+        }
+
+        /**
+         * Accessor for type.
+         *
+         * @return ADD, REMOVE or EDIT
+         */
+        public byte getType() {
+            return type;
+        }
+
+        /**
+         * Accessor for arrivalTime.
+         *
+         * @return arrival time of the event in epoch milliseconds
+         */
+        public long getArrivalTime() {
+            return arrivalTime;
+        }
+
+        /**
+         * Accessor for event.
+         *
+         * @return the event after the change, null for REMOVE
+         */
+        public CalendarEvent getEvent() {
+            return event;
+        }
+    }
+
+    /**
+     * A thread waiting for the records appended before it.
+     */
+    private static class Sync {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean isFailed = false;
+    }
+
+    /**
+     * A request to fold the journal into a snapshot.
+     */
+    private static class Compaction {
+        private final List<CalendarEvent> events;
+        private final File snapshotFile;
+
+        Compaction(List<CalendarEvent> events, File snapshotFile) {
+            this.events = events;
+            this.snapshotFile = snapshotFile;
+        }
+    }
+}
@@ -1,14 +1,45 @@
+import javax.swing.SwingUtilities;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * A model keeps track all events' values.
+ * Events are indexed by arrival time in epoch milliseconds, so they are always in order and time ranges
+ * can be read without sorting. The events are kept in an EventStore, in the heap by default or in a
+ * memory-mapped file for calendars too big to load. A saved event is never changed, an edit replaces it
+ * with a changed copy. Readers of a store keeping the event objects share immutable snapshots of them,
+ * made again on the next read after a change. Other stores make their events again on every read, so the
+ * model keeps only the arrival times and windows of their events and readers ask for the range they show.
+ * Saved events are restored in the background, so the windows open at once however many events were saved.
+ * The window asks to be told when they are restored instead of waiting for them on the event dispatch thread.
+ * <p>
+ * The model is safe for many threads at once. The store is thread safe itself; a change of one event holds
+ * the lock of its stripe, so changes of different events do not wait for each other. Every change also
+ * holds the shared side of a commit lock, and a journal compaction holds the exclusive side, so the
+ * snapshot written always matches the journal.
  */
 public class EventModel {
-    private ArrayList<Listener> modelListeners;
-    private HashMap<GregorianCalendar, CalendarEvent> events;
+    private final static int RESTORE_BATCH_SIZE = 500;
+    private final static int WINDOW_BATCH_SIZE = 500;
+    private final static int LOCK_STRIPE_BITS = 6;
+    private ModelEventBus eventBus;
+    private final EventStore events;
+    private volatile Snapshot snapshot;
+    private final AtomicLong version = new AtomicLong();
+    private volatile EventJournal journal;
     private File file;
+    private volatile Set<Long> changedWhileRestoring;
+    private volatile IntervalTree windows;
+    private final CountDownLatch restored = new CountDownLatch(1);
+    private final List<Runnable> restoreActions = new ArrayList<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[1 << LOCK_STRIPE_BITS];
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
     private LinkedBlockingQueue<RawUserInput> eventsToProcess;
 
 
@@ -18,29 +49,123 @@ public class EventModel {
      * @param filePath file path that save old information
      */
     public EventModel(String filePath) {
-        events = new HashMap<GregorianCalendar, CalendarEvent>();
-        modelListeners = new ArrayList<Listener>();
+        this(filePath, new MemoryEventStore());
+    }
+
+    /**
+     * Constructor for the class keeping the events in a store in the heap, they are saved to a file.
+     *
+     * @param filePath file path that save old information
+     * @param store    the empty store of the events
+     */
+    public EventModel(String filePath, EventStore store) {
+        events = store;
+        eventBus = new ModelEventBus(ModelEventBus.DEFAULT_INTERVAL_MILLIS);
+        createStripes();
         eventsToProcess = new LinkedBlockingQueue<>();
         maybeCreateFile(filePath);
     }
 
     /**
-     * Adds a listener.
+     * Constructor for the class keeping the events in a store that saves them itself, no file is read.
+     *
+     * @param store the store of the events
+     */
+    public EventModel(EventStore store) {
+        events = store;
+        eventBus = new ModelEventBus(ModelEventBus.DEFAULT_INTERVAL_MILLIS);
+        createStripes();
+        eventsToProcess = new LinkedBlockingQueue<>();
+        // the store may already hold many events, their windows are indexed like restored events
+        Thread thread = new Thread(() -> {
+            try {
+                createWindows();
+            } finally {
+                finishRestore();
+            }
+        }, "EventModel-restore");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates the locks of the stripes.
+     */
+    private void createStripes() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Gets the lock of the stripe of an event. Arrival times are mostly whole minutes, so the key is
+     * mixed before choosing the stripe.
+     *
+     * @param key arrival time of the event in epoch milliseconds
+     * @return the lock
+     */
+    private ReentrantLock stripeOf(long key) {
+        return stripes[(int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - LOCK_STRIPE_BITS))];
+    }
+
+    /**
+     * Locks an event before changing it.
+     *
+     * @param key arrival time of the event in epoch milliseconds
+     */
+    private void lock(long key) {
+        commitLock.readLock().lock();
+        stripeOf(key).lock();
+    }
+
+    /**
+     * Unlocks an event after changing it.
+     *
+     * @param key arrival time of the event in epoch milliseconds
+     */
+    private void unlock(long key) {
+        stripeOf(key).unlock();
+        commitLock.readLock().unlock();
+    }
+
+    /**
+     * Adds a listener. It gets a ModelEventBus.ChangeSet on the event dispatch thread some time after
+     * the events changed, with all changes made since its last update.
      *
      * @param l adding listener
      */
     public void addListener(Listener l) {
-        modelListeners.add(l);
+        eventBus.addListener(l);
     }
 
     /**
-     * Adds event to the list.
+     * Accessor for eventBus.
+     *
+     * @return the bus telling listeners about changes
+     */
+    public ModelEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Adds event to the list. It does not wait for the saved events, one added while they are restored
+     * is newer than a saved event at the same time, which is then not restored.
      *
      * @param s the adding event
      */
     public void addEvent(CalendarEvent s) {
-        events.put(s.getArrivalDateTime(), s);
-        notifyListener(s);
+        long key = toKey(s.getArrivalDateTime());
+        lock(key);
+        try {
+            events.put(key, s);
+            indexWindow(key, s);
+            changed(key);
+            record(EventJournal.ADD, key, s);
+            eventBus.added(key);
+        } finally {
+            unlock(key);
+        }
+        maybeCompact();
     }
 
     /**
@@ -74,59 +199,330 @@ public class EventModel {
     }
 
     /**
-     * Checks if the time is already in the the list.
+     * Checks if the time is already in the the list, saved events not restored yet are waited for.
      *
      * @param dateTime the checking time
      * @return true or false
      */
     public boolean isTimeOccupied(GregorianCalendar dateTime) {
-        return events.containsKey(dateTime);
+        awaitRestore();
+        return events.containsKey(toKey(dateTime));
     }
 
     /**
-     * Gets list of events in sort order.
+     * Gets list of events in sort order. The list can not be changed. For a store keeping the event objects
+     * the list is shared by all readers until the events change; other stores make every event of the list
+     * again, so readers showing a part of the events should use getKeys and eventsBetween instead.
      *
-     * @return a copy of list of events in string format
+     * @return snapshot of the events
      */
+    public List<CalendarEvent> getEventsList() {
+        if (!events.keepsEventObjects()) {
+            return events.range(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+        }
+        Snapshot current = snapshot;
+        // a change bumps the version after changing the store, so a list read after the version
+        // holds at least every change up to that version
+        long currentVersion = version.get();
+        if (current != null && current.version == currentVersion) {
+            return current.events;
+        }
+        List<CalendarEvent> eventsList = events.range(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+        snapshot = new Snapshot(currentVersion, eventsList);
+        return eventsList;
+    }
 
-    public ArrayList<CalendarEvent> getEventsList() {
-        CalendarEvent event;
-        ArrayList<CalendarEvent> eventListForModel = new ArrayList<>();
-        Iterator<Map.Entry<GregorianCalendar, CalendarEvent>> iterator = events.entrySet().iterator();
-        while (iterator.hasNext()) {
-            event = iterator.next().getValue();
-            try {
-                eventListForModel.add(event.clone());
-            } catch (CloneNotSupportedException e) {
-                e.printStackTrace();
+    /**
+     * Gets the arrival times of all events in sort order, no event is made.
+     *
+     * @return arrival times in epoch milliseconds
+     */
+    public long[] getKeys() {
+        return events.keys();
+    }
+
+    /**
+     * Accessor for version, it grows every time the events change.
+     *
+     * @return version of the events
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Makes the snapshot out of date after a change of the events.
+     */
+    private void changed() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Makes the snapshot out of date after a change of one event, the caller holds the lock of the event.
+     * An event changed while the saved events are restored is newer than the saved one.
+     *
+     * @param key arrival time of the event in epoch milliseconds
+     */
+    private void changed(long key) {
+        changed();
+        Set<Long> changedKeys = changedWhileRestoring;
+        if (changedKeys != null) {
+            changedKeys.add(key);
+        }
+    }
+
+    /**
+     * Saves every later change of the events in a journal, after applying the changes already in it.
+     *
+     * @param journal the journal
+     * @throws IOException when the journal can not be read
+     */
+    public void useJournal(EventJournal journal) throws IOException {
+        List<EventJournal.Record> records = journal.readAll();
+        commitLock.writeLock().lock();
+        try {
+            for (EventJournal.Record record : records) {
+                long key = record.getArrivalTime();
+                stripeOf(key).lock();
+                try {
+                    if (record.getType() == EventJournal.REMOVE) {
+                        events.remove(key);
+                        removeWindow(key);
+                        eventBus.removed(key);
+                    } else {
+                        events.put(key, record.getEvent());
+                        indexWindow(key, record.getEvent());
+                        eventBus.added(key);
+                    }
+                    changed(key);
+                } finally {
+                    stripeOf(key).unlock();
+                }
+            }
+            this.journal = journal;
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a change to the journal. The caller holds the lock of the event, so the journal gets
+     * the changes of an event in the same order as the store.
+     *
+     * @param type  ADD, REMOVE or EDIT
+     * @param key   arrival time of the event in epoch milliseconds
+     * @param event the event after the change, null for REMOVE
+     */
+    private void record(byte type, long key, CalendarEvent event) {
+        EventJournal currentJournal = journal;
+        if (currentJournal != null) {
+            currentJournal.append(type, key, event);
+        }
+    }
+
+    /**
+     * Folds the journal into the save file once it grew too big. No change is made while the
+     * snapshot is taken, the caller must not hold the lock of an event.
+     */
+    private void maybeCompact() {
+        EventJournal currentJournal = journal;
+        // a compaction before the saved events are restored would lose the ones not restored yet
+        if (currentJournal == null || !currentJournal.needsCompaction() || changedWhileRestoring != null) {
+            return;
+        }
+        commitLock.writeLock().lock();
+        try {
+            if (currentJournal.needsCompaction()) {
+                currentJournal.compact(getEventsList(), file);
+            }
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the events arriving between two times in sort order.
+     *
+     * @param from first arrival time included
+     * @param to   first arrival time not included
+     * @return the events in the range
+     */
+    public List<CalendarEvent> eventsBetween(GregorianCalendar from, GregorianCalendar to) {
+        long fromKey = toKey(from);
+        long toKey = toKey(to);
+        if (fromKey >= toKey) {
+            return Collections.emptyList();
+        }
+        return events.range(fromKey, toKey, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the events arriving between two arrival times in sort order.
+     *
+     * @param fromKey first arrival time included in epoch milliseconds
+     * @param toKey   first arrival time not included in epoch milliseconds
+     * @param limit   most events returned
+     * @return the events in the range
+     */
+    public List<CalendarEvent> eventsBetween(long fromKey, long toKey, int limit) {
+        return events.range(fromKey, toKey, limit);
+    }
+
+    /**
+     * Gets the next events arriving from now on.
+     *
+     * @param k most events returned
+     * @return up to k events in sort order
+     */
+    public List<CalendarEvent> next(int k) {
+        return next(new GregorianCalendar(), k);
+    }
+
+    /**
+     * Gets the next events arriving from a time on.
+     *
+     * @param from first arrival time included
+     * @param k    most events returned
+     * @return up to k events in sort order
+     */
+    public List<CalendarEvent> next(GregorianCalendar from, int k) {
+        return events.range(toKey(from), Long.MAX_VALUE, k);
+    }
+
+    /**
+     * Finds the events whose window from alarm to arrival overlaps a range of time.
+     * The windows are indexed in an IntervalTree made when the saved events are restored and kept up to date
+     * afterwards. Saved events not restored yet are waited for.
+     *
+     * @param from start of the range
+     * @param to   end of the range
+     * @return the overlapping events in order of their alarm time
+     */
+    public List<CalendarEvent> findConflicts(GregorianCalendar from, GregorianCalendar to) {
+        awaitRestore();
+        IntervalTree currentWindows = windows;
+        if (currentWindows == null) {
+            currentWindows = createWindows();
+        }
+        ArrayList<CalendarEvent> conflicts = new ArrayList<>();
+        for (long key : currentWindows.findOverlapping(toKey(from), toKey(to))) {
+            CalendarEvent event = events.get(key);
+            if (event != null) {
+                conflicts.add(event);
             }
         }
-        Collections.sort(eventListForModel);
-        return eventListForModel;
+        return conflicts;
+    }
+
+    /**
+     * Indexes the windows of all events. No event changes meanwhile, every later change updates the index.
+     * The events are read in batches, so only the windows are kept and not a list of all events.
+     *
+     * @return the index
+     */
+    private IntervalTree createWindows() {
+        commitLock.writeLock().lock();
+        try {
+            if (windows == null) {
+                IntervalTree tree = new IntervalTree();
+                long fromKey = Long.MIN_VALUE;
+                List<CalendarEvent> batch;
+                do {
+                    batch = events.range(fromKey, Long.MAX_VALUE, WINDOW_BATCH_SIZE);
+                    for (CalendarEvent event : batch) {
+                        long key = toKey(event.getArrivalDateTime());
+                        tree.put(key, windowStart(key, event), key);
+                        fromKey = key + 1;
+                    }
+                } while (batch.size() == WINDOW_BATCH_SIZE && fromKey != Long.MIN_VALUE);
+                windows = tree;
+            }
+            return windows;
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the window of a saved event, the caller holds the lock of the event.
+     *
+     * @param key   arrival time of the event in epoch milliseconds
+     * @param event the event
+     */
+    private void indexWindow(long key, CalendarEvent event) {
+        IntervalTree currentWindows = windows;
+        if (currentWindows != null) {
+            currentWindows.put(key, windowStart(key, event), key);
+        }
     }
 
     /**
-     * Notifies all listeners.
+     * Removes the window of a removed event, the caller holds the lock of the event.
      *
-     * @param object changed object
+     * @param key arrival time of the event in epoch milliseconds
      */
-    private void notifyListener(Object object) {
-        for (Listener l : modelListeners) {
-            l.update(object);
+    private void removeWindow(long key) {
+        IntervalTree currentWindows = windows;
+        if (currentWindows != null) {
+            currentWindows.remove(key);
         }
     }
 
+    /**
+     * Gets the start of the window of an event.
+     *
+     * @param key   arrival time of the event in epoch milliseconds
+     * @param event the event
+     * @return alarm time in epoch milliseconds
+     */
+    private static long windowStart(long key, CalendarEvent event) {
+        GregorianCalendar alarm = event.getAlarmTime();
+        return alarm == null ? key : Math.min(alarm.getTimeInMillis(), key);
+    }
+
+    /**
+     * Copies an event before it is changed, readers may still hold the saved one.
+     *
+     * @param event the saved event
+     * @return a copy of the event
+     */
+    private static CalendarEvent copyOf(CalendarEvent event) {
+        try {
+            return event.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the key of an arrival time in the index.
+     *
+     * @param dateTime the arrival time
+     * @return the arrival time in epoch milliseconds
+     */
+    private static long toKey(GregorianCalendar dateTime) {
+        return dateTime.getTimeInMillis();
+    }
+
     /**
      * Removes events from the tracking event list
      *
      * @param ob removing object
      */
     public void removeEvents(CalendarEvent ob) {
-        GregorianCalendar calendar = ob.getArrivalDateTime();
-        if (events.containsKey(calendar)) {
-            events.remove(calendar);
-            notifyListener(ob);
+        long key = toKey(ob.getArrivalDateTime());
+        lock(key);
+        try {
+            if (events.remove(key)) {
+                removeWindow(key);
+                changed(key);
+                record(EventJournal.REMOVE, key, null);
+                eventBus.removed(key);
+            }
+        } finally {
+            unlock(key);
         }
+        maybeCompact();
     }
 
     /**
@@ -136,64 +532,266 @@ public class EventModel {
      * @param ob
      */
     public void editPublishedEvent(CalendarEvent ob, int changingMin) {
-        GregorianCalendar calendar = ob.getArrivalDateTime();
-        if (events.containsKey(calendar)) {
-            EventWithInfo changedEvent = (EventWithInfo) events.get(calendar);
-            changedEvent.editAlarmAfterEventOccurred(changingMin);
-            notifyListener(ob);
+        long key = toKey(ob.getArrivalDateTime());
+        lock(key);
+        try {
+            CalendarEvent event = events.get(key);
+            if (event != null) {
+                EventWithInfo changedEvent = (EventWithInfo) copyOf(event);
+                changedEvent.editAlarmAfterEventOccurred(changingMin);
+                events.put(key, changedEvent);
+                indexWindow(key, changedEvent);
+                changed(key);
+                record(EventJournal.EDIT, key, changedEvent);
+                eventBus.edited(key);
+            }
+        } finally {
+            unlock(key);
         }
+        maybeCompact();
     }
 
     /**
-     * Saves all event to file.
+     * Updates the travel time of a saved event with a newer estimate.
+     *
+     * @param ob           the event to update
+     * @param durationSec  new travel time in seconds
+     * @param thresholdMin smallest change in minutes that moves the alarm
+     * @return true if the alarm moved
+     */
+    public boolean updateTravelDuration(CalendarEvent ob, int durationSec, int thresholdMin) {
+        boolean isMoved = false;
+        long key = toKey(ob.getArrivalDateTime());
+        lock(key);
+        try {
+            CalendarEvent event = events.get(key);
+            if (event instanceof EventWithInfo) {
+                EventWithInfo changedEvent = (EventWithInfo) copyOf(event);
+                isMoved = changedEvent.updateTravelDuration(durationSec, thresholdMin);
+                if (isMoved) {
+                    events.put(key, changedEvent);
+                    indexWindow(key, changedEvent);
+                    changed(key);
+                    record(EventJournal.EDIT, key, changedEvent);
+                    eventBus.edited(key);
+                }
+            }
+        } finally {
+            unlock(key);
+        }
+        maybeCompact();
+        return isMoved;
+    }
+
+    /**
+     * Saves all event to file. With a journal the changes are already saved, the journal is folded
+     * into the file and this waits until it is done. A store in a file is only flushed. Saving waits
+     * until the saved events are restored.
      */
     public void saveEventsToFile() {
+        awaitRestore();
+        EventJournal currentJournal;
+        commitLock.writeLock().lock();
         try {
-            FileOutputStream fileOut = new FileOutputStream(file.getName());
-            ObjectOutputStream out = new ObjectOutputStream(fileOut);
-            out.writeObject(events);
-            out.close();
-            fileOut.close();
+            currentJournal = journal;
+            if (currentJournal == null) {
+                try {
+                    if (file == null) {
+                        events.flush();
+                    } else {
+                        writeEvents(file, getEventsList());
+                    }
+                } catch (IOException i) {
+                    i.printStackTrace();
+                }
+                return;
+            }
+            currentJournal.compact(getEventsList(), file);
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        try {
+            currentJournal.sync();
         } catch (IOException i) {
             i.printStackTrace();
         }
     }
 
     /**
-     * Restore information from file.
+     * Writes events to a file with EventCodec.
+     *
+     * @param file   the file
+     * @param events events to write
+     * @throws IOException when the file can not be written
      */
+    static void writeEvents(File file, Collection<CalendarEvent> events) throws IOException {
+        FileOutputStream fileOut = new FileOutputStream(file);
+        try {
+            EventCodec.write(fileOut, events);
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+    }
 
+    /**
+     * Restore information from file, files saved by java serialization in older versions are read too.
+     */
     public void restoreEventsFromFile() {
         try {
-            FileInputStream fileInput = new FileInputStream(file.getName());
-            ObjectInputStream inputStream = new ObjectInputStream(fileInput);
-            while (true) {
-                try {
-                    events = (HashMap<GregorianCalendar, CalendarEvent>) inputStream.readObject();
-                    getEventsList();
-                } catch (EOFException eof) {
-                    break;
+            FileInputStream fileInput = new FileInputStream(file);
+            List<CalendarEvent> savedEvents;
+            try {
+                savedEvents = EventCodec.read(fileInput);
+            } finally {
+                fileInput.close();
+            }
+            commitLock.writeLock().lock();
+            try {
+                events.clear();
+                for (CalendarEvent event : savedEvents) {
+                    events.put(toKey(event.getArrivalDateTime()), event);
                 }
+                windows = null;
+                createWindows();
+                changed();
+            } finally {
+                commitLock.writeLock().unlock();
             }
-            inputStream.close();
-            fileInput.close();
+            eventBus.reloaded();
         } catch (Exception e) {
-            return;
+            e.printStackTrace();
         }
     }
 
     /**
-     * Checks if the file exists, if not creates a file.
+     * Restores the events from file on a background thread. The events come in batches, each batch is
+     * shown as soon as it is read. Events added, changed or removed in the meantime are kept as they are.
+     */
+    private void restoreEventsInBackground() {
+        changedWhileRestoring = ConcurrentHashMap.newKeySet();
+        Thread thread = new Thread(() -> {
+            try {
+                FileInputStream fileInput = new FileInputStream(file);
+                try {
+                    EventCodec.read(fileInput, RESTORE_BATCH_SIZE, this::addRestoredEvents);
+                } finally {
+                    fileInput.close();
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                changedWhileRestoring = null;
+                try {
+                    // indexed here, so the first search on the event dispatch thread finds the index ready
+                    createWindows();
+                } finally {
+                    finishRestore();
+                }
+            }
+        }, "EventModel-restore");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds a batch of restored events, except those changed since restoring started.
+     *
+     * @param restoredEvents the events
+     */
+    private void addRestoredEvents(List<CalendarEvent> restoredEvents) {
+        Set<Long> changedKeys = changedWhileRestoring;
+        for (CalendarEvent event : restoredEvents) {
+            long key = toKey(event.getArrivalDateTime());
+            lock(key);
+            try {
+                if (!changedKeys.contains(key)) {
+                    events.put(key, event);
+                    indexWindow(key, event);
+                    eventBus.added(key);
+                }
+            } finally {
+                unlock(key);
+            }
+        }
+        changed();
+    }
+
+    /**
+     * Waits until the saved events are restored.
+     */
+    public void awaitRestore() {
+        try {
+            restored.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs an action on the event dispatch thread once the saved events are restored, at once if they are.
+     *
+     * @param action the action
+     */
+    public void whenRestored(Runnable action) {
+        synchronized (restoreActions) {
+            if (restored.getCount() > 0) {
+                restoreActions.add(action);
+                return;
+            }
+        }
+        SwingUtilities.invokeLater(action);
+    }
+
+    /**
+     * Ends the restore and runs the actions waiting for it.
+     */
+    private void finishRestore() {
+        ArrayList<Runnable> actions;
+        synchronized (restoreActions) {
+            restored.countDown();
+            actions = new ArrayList<>(restoreActions);
+            restoreActions.clear();
+        }
+        for (Runnable action : actions) {
+            SwingUtilities.invokeLater(action);
+        }
+    }
+
+    /**
+     * Checks if the saved events are still being restored.
+     *
+     * @return true or false
+     */
+    public boolean isRestoring() {
+        return restored.getCount() > 0;
+    }
+
+    /**
+     * Checks if the file exists, if so restores the events from it.
      *
      * @param fileName the file name
      */
     private void maybeCreateFile(String fileName) {
         this.file = new File(fileName);
         if (file.exists()) {
-            restoreEventsFromFile();
+            restoreEventsInBackground();
+        } else {
+            windows = new IntervalTree();
+            finishRestore();
         }
     }
 
+    /**
+     * A list of the events and the version it was read at.
+     */
+    private static class Snapshot {
+        private final long version;
+        private final List<CalendarEvent> events;
 
+        Snapshot(long version, List<CalendarEvent> events) {
+            this.version = version;
+            this.events = events;
+        }
+    }
 }
-
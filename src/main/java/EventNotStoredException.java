@@ -0,0 +1,26 @@
+/**
+ * Class EventNotStoredException is thrown by an event store that can not take an event: the event is bigger
+ * than a slot of the store or the store is full. The events already stored are not changed.
+ */
+public class EventNotStoredException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for the class.
+     *
+     * @param message why the event was not stored, shown to the user
+     */
+    public EventNotStoredException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param message why the event was not stored, shown to the user
+     * @param cause   the error of the store
+     */
+    public EventNotStoredException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface EventStore keeps the events of an EventModel indexed by arrival time in epoch milliseconds.
+ * A store is used by many threads at once and must be thread safe.
+ */
+public interface EventStore {
+    /**
+     * Gets the event arriving at a time.
+     *
+     * @param key arrival time in epoch milliseconds
+     * @return the event or null if there is none
+     */
+    CalendarEvent get(long key);
+
+    /**
+     * Saves an event, an event arriving at the same time is replaced.
+     *
+     * @param key   arrival time in epoch milliseconds
+     * @param event the event
+     */
+    void put(long key, CalendarEvent event);
+
+    /**
+     * Removes the event arriving at a time.
+     *
+     * @param key arrival time in epoch milliseconds
+     * @return true if there was an event
+     */
+    boolean remove(long key);
+
+    /**
+     * Removes all events.
+     */
+    void clear();
+
+    /**
+     * Checks if an event arrives at a time.
+     *
+     * @param key arrival time in epoch milliseconds
+     * @return true or false
+     */
+    boolean containsKey(long key);
+
+    /**
+     * Gets the number of events.
+     *
+     * @return number of events
+     */
+    int size();
+
+    /**
+     * Gets the events arriving in a range of times in sort order. The list can not be changed and
+     * does not change with the store.
+     *
+     * @param fromKey first arrival time included
+     * @param toKey   first arrival time not included
+     * @param limit   most events returned
+     * @return the events in the range
+     */
+    List<CalendarEvent> range(long fromKey, long toKey, int limit);
+
+    /**
+     * Gets the arrival times of all events in sort order, no event is made or decoded.
+     *
+     * @return arrival times in epoch milliseconds
+     */
+    long[] keys();
+
+    /**
+     * Checks if the store keeps the event objects themselves. A list of such events only costs references,
+     * the events of other stores are made again every time they are read.
+     *
+     * @return true if range returns the events kept by the store
+     */
+    boolean keepsEventObjects();
+
+    /**
+     * Writes the events to lasting storage if the store has any.
+     *
+     * @throws IOException when the events can not be written
+     */
+    void flush() throws IOException;
+}
@@ -1,18 +1,22 @@
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
 
 
 /**
  * Class contain event which doesn't have valid info from API
  */
 public class EventWithInfo extends CalendarEvent {
+    private static final long serialVersionUID = -936902676319214390L;
     private int DEFAULT_PREPARE_MIN = 30;
     private int DEFAULT_EXTRA_MIN = 10;
     private double averageRating;
     private int preparingTime;
     private int travelTime;
     private GooglePlaceInfo placeInfo;
+    private HashMap<String, Long> modeDurations;
 
 
 
@@ -128,10 +132,39 @@ public class EventWithInfo extends CalendarEvent {
         event.alarmTime = alarmTime;
         event.isAlarmCorrected = isAlarmCorrected;
         event.placeInfo = placeInfo;
+        event.modeDurations = modeDurations;
         return event;
     }
 
+    /**
+     * Updates the travel time with a newer estimate. The alarm only moves when the travel time changed
+     * by at least the threshold, and time the user added or removed by hand is kept.
+     *
+     * @param durationSec  new travel time in seconds
+     * @param thresholdMin smallest change in minutes that moves the alarm
+     * @return true if the alarm moved
+     */
+    public boolean updateTravelDuration(int durationSec, int thresholdMin) {
+        if (Math.abs(durationSec / SEC_PER_MIN - transport.getDurationInMin()) < thresholdMin) {
+            return false;
+        }
+        int oldTotalMin = transport.getTotalTravelMin();
+        transport.setDuration(durationSec);
+        travelTime = transport.getDurationInMin();
+        if (modeDurations != null && modeDurations.containsKey(transport.toString())) {
+            modeDurations = new HashMap<>(modeDurations);
+            modeDurations.put(transport.toString(), (long) durationSec);
+        }
+        int changeMin = transport.getTotalTravelMin() - oldTotalMin;
+        recommendedReadyMin += changeMin;
+        // clones share the alarm time and mode durations, so they are replaced instead of changed in place
+        alarmTime = (GregorianCalendar) alarmTime.clone();
+        alarmTime.add(Calendar.MINUTE, -changeMin);
+        return true;
+    }
+
     public void editAlarmAfterEventOccurred(double adjustMin){
+        alarmTime = (GregorianCalendar) alarmTime.clone();
         alarmTime.add(Calendar.MINUTE, (int) adjustMin);
         isAlarmCorrected = true;
         recommendedReadyMin += adjustMin;
@@ -177,9 +210,79 @@ public class EventWithInfo extends CalendarEvent {
      */
     public String getEventInfo() {
         return String.format("Travel Duration:\t%s" +
-                        "\n\nAlarm Time:\t%s\n\n%s %s the event,",
+                        "\n\nAlarm Time:\t%s\n\n%s %s the event,%s",
                 durationStringFormat(travelTime), getAlarmString(),
-                durationStringFormat(recommendedReadyMin), (recommendedReadyMin < 0) ? "after" : "before");
+                durationStringFormat(recommendedReadyMin), (recommendedReadyMin < 0) ? "after" : "before",
+                getModeComparison());
+    }
+
+    /**
+     * Get travel duration of every mode of transportation that was requested.
+     *
+     * @return a string comparing the modes, empty if they were not requested
+     */
+    private String getModeComparison() {
+        if (modeDurations == null || modeDurations.isEmpty()) {
+            return "";
+        }
+        StringBuilder str = new StringBuilder("\n\nOther modes:");
+        for (String mode : new String[]{DRIVING_TYPE, TRANSIT_TYPE, BIKING_TYPE, WALKING_TYPE}) {
+            Long durationSec = modeDurations.get(mode);
+            if (durationSec != null) {
+                str.append(String.format("\n%s:\t%s", mode,
+                        durationStringFormat((int) (durationSec / SEC_PER_MIN))));
+            }
+        }
+        return str.toString();
+    }
+
+    /**
+     * Set travel duration of every mode of transportation.
+     *
+     * @param modeDurations travel time in seconds of each mode
+     */
+    public void setModeDurations(Map<String, Long> modeDurations) {
+        this.modeDurations = new HashMap<>(modeDurations);
+    }
+
+    /**
+     * Accessor for modeDurations.
+     *
+     * @return travel time in seconds of each mode, null if they were not requested
+     */
+    Map<String, Long> getModeDurations() {
+        return modeDurations;
+    }
+
+    /**
+     * Accessor for averageRating.
+     *
+     * @return rating of the ending destination
+     */
+    double getAverageRating() {
+        return averageRating;
+    }
+
+    /**
+     * Get travel duration of a mode of transportation.
+     *
+     * @param mode mode of transportation
+     * @return travel time in minutes or -1 if it was not requested
+     */
+    public int getModeDurationInMin(String mode) {
+        if (modeDurations == null || !modeDurations.containsKey(mode)) {
+            return -1;
+        }
+        return (int) (modeDurations.get(mode) / SEC_PER_MIN);
+    }
+
+    /**
+     * Checks if the travel duration of all modes of transportation were requested.
+     *
+     * @return true if other modes were requested
+     */
+    public boolean hasModeDurations() {
+        return modeDurations != null && !modeDurations.isEmpty();
     }
 
 
@@ -10,6 +10,7 @@ import java.time.format.DateTimeFormatter;
  * A class store extra information about the event (only use to collect training data)
  */
 public class GooglePlaceInfo implements Serializable, Cloneable{
+    private static final long serialVersionUID = 7229909637646640961L;
     private String destinationID;
     private String originID;
     private String[] openPeriod;
@@ -18,12 +19,13 @@ public class GooglePlaceInfo implements Serializable, Cloneable{
     private float destRating;
 
     public GooglePlaceInfo(String originID, String destinationID, String[] openPeriod, String priceLevel, String destPlaceType, float rating) {
-        this.openPeriod = openPeriod;
-        this.priceLevel = priceLevel;
-        this.destPlaceType = destPlaceType;
+        // the same places and opening hours come back with many events, so they share pooled strings
+        this.openPeriod = StringPool.internAll(openPeriod);
+        this.priceLevel = StringPool.intern(priceLevel);
+        this.destPlaceType = StringPool.intern(destPlaceType);
         this.destRating = rating;
-        this.destinationID = destinationID;
-        this.originID = originID;
+        this.destinationID = StringPool.intern(destinationID);
+        this.originID = StringPool.intern(originID);
     }
 
     public String getDestinationID() {
@@ -52,9 +54,23 @@ public class GooglePlaceInfo implements Serializable, Cloneable{
         return priceLevel;
     }
 
-//    public String getDestPlaceType() {
-//        return destPlaceType;
-//    }
+    /**
+     * Accessor for openPeriod.
+     *
+     * @return opening hours of each day as given by google
+     */
+    String[] getOpenPeriod() {
+        return openPeriod;
+    }
+
+    /**
+     * Accessor for destPlaceType.
+     *
+     * @return type of the ending destination
+     */
+    String getDestPlaceType() {
+        return destPlaceType;
+    }
 
     public float getDestinationRating() {
         return destRating;
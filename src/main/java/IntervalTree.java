@@ -0,0 +1,201 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class IntervalTree finds the time windows overlapping a range of time. The windows are kept in a treap
+ * sorted by start time, and every node knows the latest end in its subtree, so a search skips every
+ * subtree ending too early. Adding and removing take O(log n) and a search O(log n + k) for k windows
+ * found. Windows have an id, a window added again with the same id replaces the old one.
+ */
+public class IntervalTree {
+    private Node root;
+    private HashMap<Long, Node> nodes;
+    private Random random;
+
+    /**
+     * Constructor for the class.
+     */
+    public IntervalTree() {
+        nodes = new HashMap<>();
+        random = new Random();
+    }
+
+    /**
+     * Adds a window, or replaces the window with the same id.
+     *
+     * @param id    id of the window
+     * @param start start of the window
+     * @param end   end of the window
+     */
+    public synchronized void put(long id, long start, long end) {
+        remove(id);
+        Node node = new Node(id, start, end, random.nextInt());
+        nodes.put(id, node);
+        root = insert(root, node);
+    }
+
+    /**
+     * Removes a window.
+     *
+     * @param id id of the window
+     * @return true if there was a window with the id
+     */
+    public synchronized boolean remove(long id) {
+        Node node = nodes.remove(id);
+        if (node == null) {
+            return false;
+        }
+        root = delete(root, node);
+        return true;
+    }
+
+    /**
+     * Gets the number of windows.
+     *
+     * @return number of windows
+     */
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Finds the windows overlapping a range, windows only touching the range are left out.
+     *
+     * @param from start of the range
+     * @param to   end of the range
+     * @return ids of the windows in order of their start
+     */
+    public synchronized List<Long> findOverlapping(long from, long to) {
+        ArrayList<Long> ids = new ArrayList<>();
+        collect(root, from, to, ids);
+        return ids;
+    }
+
+    private static void collect(Node node, long from, long to, List<Long> ids) {
+        if (node == null || node.maxEnd <= from) {
+            return;
+        }
+        collect(node.left, from, to, ids);
+        if (node.start >= to) {
+            // everything to the right starts even later
+            return;
+        }
+        if (node.end > from) {
+            ids.add(node.id);
+        }
+        collect(node.right, from, to, ids);
+    }
+
+    private static Node insert(Node parent, Node node) {
+        if (parent == null) {
+            return node;
+        }
+        if (node.isBefore(parent)) {
+            parent.left = insert(parent.left, node);
+            if (parent.left.priority > parent.priority) {
+                parent = rotateRight(parent);
+            }
+        } else {
+            parent.right = insert(parent.right, node);
+            if (parent.right.priority > parent.priority) {
+                parent = rotateLeft(parent);
+            }
+        }
+        parent.update();
+        return parent;
+    }
+
+    private static Node delete(Node parent, Node node) {
+        if (parent == node) {
+            return merge(node.left, node.right);
+        }
+        if (node.isBefore(parent)) {
+            parent.left = delete(parent.left, node);
+        } else {
+            parent.right = delete(parent.right, node);
+        }
+        parent.update();
+        return parent;
+    }
+
+    /**
+     * Joins two subtrees where every node of the left one is before every node of the right one.
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        node.update();
+        left.right = node;
+        left.update();
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        node.update();
+        right.left = node;
+        right.update();
+        return right;
+    }
+
+    /**
+     * A window in the treap.
+     */
+    private static class Node {
+        private final long id;
+        private final long start;
+        private final long end;
+        private final int priority;
+        private long maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(long id, long start, long end, int priority) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            maxEnd = end;
+        }
+
+        /**
+         * Checks if this node comes before another, by start and then by id.
+         */
+        boolean isBefore(Node other) {
+            return start < other.start || (start == other.start && id < other.id);
+        }
+
+        /**
+         * Computes the latest end of the subtree again after a child changed.
+         */
+        void update() {
+            maxEnd = end;
+            if (left != null && left.maxEnd > maxEnd) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > maxEnd) {
+                maxEnd = right.maxEnd;
+            }
+        }
+    }
+}
@@ -1,20 +1,288 @@
+import java.io.*;
+
 /**
  * Class Main runs the program.
+ * Usage: Main [1 for dry run] [--workers=number of estimation threads] [--all-modes]
+ * [--maps-url=url of a MockMapsServer] [--qps=google API calls per second] [--prefetch]
+ * [--deadline-ms=longest wait for google per event] [--bulk=input csv [--out=output csv]]
+ * [--record=corpus file] [--replay=corpus file [--replay-latency]] [--refresh-budget=refreshes per minute]
+ * [--fsync=always, interval or never] [--mapped-store=store file] [--compact-store]
  */
 public class Main {
+    private final static int DEFAULT_WORKERS = 2;
+    private final static String USAGE = "Usage: Main [1 for dry run] [--workers=number of estimation threads]"
+            + " [--all-modes] [--maps-url=url of a MockMapsServer] [--qps=google API calls per second] [--prefetch]"
+            + " [--deadline-ms=longest wait for google per event] [--bulk=input csv [--out=output csv]]"
+            + " [--record=corpus file] [--replay=corpus file [--replay-latency]]"
+            + " [--refresh-budget=refreshes per minute] [--fsync=always, interval or never]"
+            + " [--mapped-store=store file] [--compact-store]";
+
     public static void main(String[] args) {
         boolean isDryRun = true;
         if (args.length >= 1) {
             isDryRun = args[0].equalsIgnoreCase("1");
         }
+        int workers;
+        int refreshBudget;
+        double permitsPerSec;
+        long deadlineMillis;
+        try {
+            workers = (int) readNumberOption(args, "workers", DEFAULT_WORKERS, 1, Integer.MAX_VALUE);
+            refreshBudget = (int) readNumberOption(args, "refresh-budget",
+                    TravelTimeRefresher.DEFAULT_BUDGET_PER_TICK, 0, Integer.MAX_VALUE);
+            permitsPerSec = readRateOption(args, "qps", ApiThrottle.DEFAULT_PERMITS_PER_SEC);
+            deadlineMillis = readNumberOption(args, "deadline-ms", CircuitBreakerDataSource.DEFAULT_DEADLINE_MILLIS,
+                    1, Long.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return;
+        }
 
-        String filePath = "CalendarEvent.se";
-        EventModel model = new EventModel(filePath);
+        String bulkInput = readOption(args, "bulk", null);
+        if (bulkInput != null) {
+            runBulk(bulkInput, readOption(args, "out", null), createDataSource(args,
+                    createDataRequest(args, isDryRun, permitsPerSec), deadlineMillis), workers);
+            return;
+        }
+
+        EventModel model = createModel(args);
+        if (model == null) {
+            return;
+        }
         UserInputFrame userInput = new UserInputFrame(500);
         OutputFrame outputFrame = new OutputFrame(model, 500);
         Controller controller = new Controller(userInput, model, outputFrame);
 
-        Thread thread = new Thread(new ReadyTimeCalc(model, outputFrame, controller, isDryRun));
-        thread.start();
+        DataRequest dataRequest = createDataRequest(args, isDryRun, permitsPerSec);
+        MapDataSource dataSource = createDataSource(args, dataRequest, deadlineMillis);
+
+        if (dataSource != null && hasFlag(args, "prefetch")) {
+            // prefetches skip the circuit breaker, so an abandoned form never opens it for the user
+            MapDataSource prefetchSource = dataSource instanceof CircuitBreakerDataSource
+                    ? ((CircuitBreakerDataSource) dataSource).getDataSource() : dataSource;
+            controller.setPrefetcher(new Prefetcher(prefetchSource));
+        }
+
+        // refreshes go straight to google, a failed refresh must not open the breaker for the user
+        if (dataRequest != null && refreshBudget > 0) {
+            new TravelTimeRefresher(model, dataRequest, refreshBudget, TravelTimeRefresher.DEFAULT_THRESHOLD_MIN)
+                    .start(TravelTimeRefresher.DEFAULT_TICK_SEC);
+        }
+
+        ReadyTimeCalc readyTimeCalc = new ReadyTimeCalc(model, outputFrame, controller, dataSource);
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(readyTimeCalc, "ReadyTimeCalc-" + i);
+            thread.start();
+        }
+    }
+
+    /**
+     * Estimates the events of a CSV file without any window and writes their alarm times.
+     *
+     * @param inputPath  CSV file of events
+     * @param outputPath CSV file for the alarm times, null to write to the console
+     * @param dataSource source of trip information, null to run without the API
+     * @param workers    number of events estimated at the same time
+     */
+    private static void runBulk(String inputPath, String outputPath, MapDataSource dataSource, int workers) {
+        BulkEstimator estimator = new BulkEstimator(dataSource, workers);
+        try (Reader input = new BufferedReader(new FileReader(inputPath));
+             Writer output = outputPath == null ? new OutputStreamWriter(System.out)
+                     : new BufferedWriter(new FileWriter(outputPath))) {
+            estimator.run(input, output);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        System.err.println("Estimated " + estimator.getRowCount() + " events, "
+                + estimator.getErrorCount() + " invalid rows");
+    }
+
+    /**
+     * Creates the model, with the events in a memory-mapped store or in the heap saved to CalendarEvent.se
+     * and a journal. In the heap the events are kept as objects, or as arrays of numbers with --compact-store.
+     *
+     * @param args arguments of the program
+     * @return the model or null if the store can not be opened
+     */
+    private static EventModel createModel(String[] args) {
+        String storePath = readOption(args, "mapped-store", null);
+        if (storePath != null) {
+            try {
+                MappedEventStore store = new MappedEventStore(storePath);
+                // a store closed cleanly opens without reading every slot again
+                Runtime.getRuntime().addShutdownHook(new Thread(store::close, "MappedEventStore-close"));
+                return new EventModel(store);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        String filePath = "CalendarEvent.se";
+        EventStore store = hasFlag(args, "compact-store") ? new CompactEventStore() : new MemoryEventStore();
+        EventModel model = new EventModel(filePath, store);
+        try {
+            EventJournal.FsyncPolicy fsyncPolicy = EventJournal.FsyncPolicy.valueOf(
+                    readOption(args, "fsync", EventJournal.FsyncPolicy.INTERVAL.name()).toUpperCase());
+            model.useJournal(new EventJournal(filePath + ".journal", fsyncPolicy));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return model;
+    }
+
+    /**
+     * Creates the requests to google from the program arguments.
+     *
+     * @param args          program arguments
+     * @param isDryRun      true to run without the API
+     * @param permitsPerSec google API calls per second
+     * @return the requests or null if there is no api key, it is a dry run or a corpus is replayed
+     */
+    private static DataRequest createDataRequest(String[] args, boolean isDryRun, double permitsPerSec) {
+        if (isDryRun || readOption(args, "replay", null) != null) {
+            return null;
+        }
+        String apiKey = ReadyTimeCalc.readApiKey();
+        String mapsUrl = readOption(args, "maps-url", null);
+        if (mapsUrl != null && apiKey.length() == 0) {
+            apiKey = "AIza-mock-key";
+        }
+        if (apiKey.length() == 0) {
+            return null;
+        }
+        DataRequest dataRequest = new DataRequest(apiKey, mapsUrl, new RouteCache(),
+                new PlaceDetailsCache(DataRequest.PLACE_CACHE_FILE),
+                new AddressIndex(DataRequest.ADDRESS_INDEX_FILE));
+        dataRequest.setAllModes(hasFlag(args, "all-modes"));
+        dataRequest.setThrottle(new ApiThrottle(permitsPerSec, ApiThrottle.DEFAULT_MAX_CONCURRENCY,
+                ApiThrottle.DEFAULT_MAX_RETRIES, ApiThrottle.DEFAULT_BACKOFF_MILLIS));
+        return dataRequest;
+    }
+
+    /**
+     * Creates the source of trip information from the program arguments.
+     *
+     * @param args           program arguments
+     * @param dataRequest    requests to google, null to run without the API
+     * @param deadlineMillis longest wait for google per event
+     * @return the data source or null if there are no requests to google and no corpus is replayed
+     */
+    private static MapDataSource createDataSource(String[] args, DataRequest dataRequest, long deadlineMillis) {
+        String replayPath = readOption(args, "replay", null);
+        if (replayPath != null) {
+            try {
+                return new ReplayDataSource(replayPath, hasFlag(args, "replay-latency"));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        if (dataRequest == null) {
+            return null;
+        }
+        MapDataSource dataSource = dataRequest;
+        String recordPath = readOption(args, "record", null);
+        if (recordPath != null) {
+            try {
+                dataSource = new RecordingDataSource(dataRequest, recordPath);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        // the breaker is outside the coalescing, so a request joining a prefetch still has a deadline
+        return new CircuitBreakerDataSource(new CoalescingDataSource(dataSource), deadlineMillis,
+                CircuitBreakerDataSource.DEFAULT_FAILURE_THRESHOLD, CircuitBreakerDataSource.DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * Reads an option given as --name=value.
+     *
+     * @param args         program arguments
+     * @param name         name of the option
+     * @param defaultValue value used when the option is not given
+     * @return value of the option
+     */
+    static String readOption(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Reads a whole number option given as --name=value.
+     *
+     * @param args         program arguments
+     * @param name         name of the option
+     * @param defaultValue value used when the option is not given
+     * @param min          smallest value allowed
+     * @param max          largest value allowed
+     * @return value of the option
+     * @throws IllegalArgumentException when the value is not a whole number between min and max
+     */
+    static long readNumberOption(String[] args, String name, long defaultValue, long min, long max) {
+        String value = readOption(args, name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        long number;
+        try {
+            number = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a whole number, not " + value, e);
+        }
+        if (number < min) {
+            throw new IllegalArgumentException("--" + name + " must be at least " + min);
+        }
+        if (number > max) {
+            throw new IllegalArgumentException("--" + name + " must be at most " + max);
+        }
+        return number;
+    }
+
+    /**
+     * Reads a rate option given as --name=value.
+     *
+     * @param args         program arguments
+     * @param name         name of the option
+     * @param defaultValue value used when the option is not given
+     * @return value of the option
+     * @throws IllegalArgumentException when the value is not a finite number above 0
+     */
+    static double readRateOption(String[] args, String name, double defaultValue) {
+        String value = readOption(args, name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        double rate;
+        try {
+            rate = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a number, not " + value, e);
+        }
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("--" + name + " must be above 0");
+        }
+        return rate;
+    }
+
+    /**
+     * Checks if a flag given as --name is set.
+     *
+     * @param args program arguments
+     * @param name name of the flag
+     * @return true if the flag is given
+     */
+    static boolean hasFlag(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.equals("--" + name)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
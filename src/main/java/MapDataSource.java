@@ -0,0 +1,18 @@
+import java.util.GregorianCalendar;
+
+/**
+ * Interface of anything that can provide the information of a trip.
+ */
+public interface MapDataSource {
+    /**
+     * Requests the information of a trip.
+     *
+     * @param origin      Beginning destination
+     * @param destination Ending destination
+     * @param travelMode  Mode of transportation
+     * @param arrivalTime Time that user must be at event
+     * @return the information of the trip or null if it could not be provided
+     * @throws MapDataUnavailableException when a source calling google could not reach it
+     */
+    RouteInfo requestMapData(String origin, String destination, String travelMode, GregorianCalendar arrivalTime);
+}
@@ -0,0 +1,17 @@
+/**
+ * Class MapDataUnavailableException is thrown by a data source when google could not be reached or failed
+ * on its side: the network failed, the call timed out, the quota ran out or the server had an error.
+ * A trip google answered with no result is not such a failure, the data source returns null for it.
+ */
+public class MapDataUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for the class.
+     *
+     * @param cause the error of the call
+     */
+    public MapDataUnavailableException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,475 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class MappedEventStore keeps the events in a memory-mapped file instead of the heap, for calendars too big
+ * to load. Every event takes a slot of fixed size holding the event written by EventCodec. Events are only
+ * decoded when they are asked for, so the heap holds nothing but the time index: arrival time and slot of
+ * every event in a SlotIndex. Slots of removed events are chained in a free list inside the file and used
+ * again, and a changed event is written to a new slot before its old slot is freed.
+ * <p>
+ * The index is saved next to the store when it is flushed or closed. The first change after a flush marks
+ * the store on disk as changed; a store opened with that mark, or without a matching index, gets its index
+ * and free list back by reading the header of every slot, slots that can not be decoded are dropped. So a
+ * crash of the program loses nothing, a power failure may lose the changes since the last flush.
+ * <p>
+ * The store is a single mapping of at most 2 GB, about a million events with slots of 2048 bytes.
+ * An event bigger than a slot or a store that is full throws EventNotStoredException.
+ */
+public class MappedEventStore implements EventStore {
+    public final static int DEFAULT_SLOT_BYTES = 2048;
+    private final static int DATA_MAGIC = 0x4345564d; // "CEVM"
+    private final static int INDEX_MAGIC = 0x43455649; // "CEVI"
+    private final static int VERSION = 2;
+    private final static int HEADER_BYTES = 64;
+    // slot: [long key or next free slot][int length, FREE for a free slot][long sequence][event bytes]
+    private final static int SLOT_HEADER_BYTES = 20;
+    private final static int FREE = -1;
+    private final static int INITIAL_SLOTS = 64;
+    // offsets of the header fields of the store
+    private final static int SLOT_BYTES_AT = 8;
+    private final static int SLOT_COUNT_AT = 12;
+    private final static int FREE_HEAD_AT = 16;
+    private final static int DIRTY_AT = 20;
+    private final static int SEQUENCE_AT = 24;
+    // index: [int magic][int version][int entry count][int unused][long sequence of the store]
+    // up to the size of a header, then entries of [long key][int slot]
+    private final static int INDEX_SEQUENCE_AT = 16;
+
+    private RandomAccessFile dataFile;
+    private File indexFile;
+    private MappedByteBuffer data;
+    private SlotIndex entries;
+    private int slotBytes;
+    private boolean isDirty = false;
+
+    /**
+     * Constructor for the class with slots of default size.
+     *
+     * @param filePath file path of the store, the index is saved next to it with ".index" added
+     * @throws IOException when the files can not be opened or are not stores
+     */
+    public MappedEventStore(String filePath) throws IOException {
+        this(filePath, DEFAULT_SLOT_BYTES);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param filePath  file path of the store, the index is saved next to it with ".index" added
+     * @param slotBytes size of a slot for a new store, an existing store keeps its own
+     * @throws IOException when the files can not be opened or are not stores
+     */
+    public MappedEventStore(String filePath, int slotBytes) throws IOException {
+        File file = new File(filePath);
+        boolean isNew = !file.exists() || file.length() == 0;
+        dataFile = new RandomAccessFile(file, "rw");
+        indexFile = new File(filePath + ".index");
+        entries = new SlotIndex();
+        if (isNew) {
+            this.slotBytes = slotBytes;
+            data = map(dataFile, HEADER_BYTES + (long) INITIAL_SLOTS * slotBytes);
+            data.putInt(0, DATA_MAGIC);
+            data.putInt(4, VERSION);
+            data.putInt(SLOT_BYTES_AT, slotBytes);
+            data.putInt(SLOT_COUNT_AT, 0);
+            data.putInt(FREE_HEAD_AT, FREE);
+            data.putLong(SEQUENCE_AT, 0);
+            isDirty = true;
+            flush();
+            return;
+        }
+        data = map(dataFile, dataFile.length());
+        if (data.getInt(0) != DATA_MAGIC) {
+            dataFile.close();
+            throw new IOException("Not an event store: " + filePath);
+        }
+        if (data.getInt(4) != VERSION) {
+            dataFile.close();
+            throw new IOException("Unknown version of event store: " + data.getInt(4));
+        }
+        this.slotBytes = data.getInt(SLOT_BYTES_AT);
+        if (data.getInt(DIRTY_AT) != 0 || !readIndex()) {
+            rebuildIndex();
+            isDirty = true;
+            flush();
+        }
+    }
+
+    /**
+     * Maps a whole file, the file grows to the size first.
+     *
+     * @param file  the file
+     * @param bytes size of the mapping
+     * @return the mapping
+     * @throws IOException when the file can not be mapped
+     */
+    private static MappedByteBuffer map(RandomAccessFile file, long bytes) throws IOException {
+        return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    }
+
+    @Override
+    public synchronized CalendarEvent get(long key) {
+        int slot = entries.get(key);
+        return slot == SlotIndex.NONE ? null : readSlot(slot);
+    }
+
+    /**
+     * Adds an event or replaces the event with the same arrival time. The event is written to a new slot
+     * and the slot of the replaced event is freed afterwards.
+     *
+     * @param key   arrival time in epoch milliseconds
+     * @param event the event
+     * @throws EventNotStoredException when the event is bigger than a slot or the store is full
+     */
+    @Override
+    public synchronized void put(long key, CalendarEvent event) {
+        byte[] bytes = EventCodec.encode(Collections.singletonList(event));
+        if (bytes.length > slotBytes - SLOT_HEADER_BYTES) {
+            throw new EventNotStoredException("The event needs " + bytes.length + " bytes, the event store holds "
+                    + (slotBytes - SLOT_HEADER_BYTES) + " bytes per event. Please use shorter names or addresses.");
+        }
+        int slot = allocateSlot();
+        writeSlot(slot, key, bytes);
+        int oldSlot = entries.put(key, slot);
+        if (oldSlot != SlotIndex.NONE) {
+            freeSlot(oldSlot);
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(long key) {
+        int slot = entries.remove(key);
+        if (slot == SlotIndex.NONE) {
+            return false;
+        }
+        markDirty();
+        freeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Removes all events, the file keeps its size.
+     */
+    @Override
+    public synchronized void clear() {
+        markDirty();
+        data.putInt(SLOT_COUNT_AT, 0);
+        data.putInt(FREE_HEAD_AT, FREE);
+        entries.clear();
+    }
+
+    @Override
+    public synchronized boolean containsKey(long key) {
+        return entries.get(key) != SlotIndex.NONE;
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the events arriving in a range of times. The events are decoded while the store is locked, so the
+     * list stays the same when the file changes later.
+     *
+     * @param fromKey first arrival time included
+     * @param toKey   first arrival time not included
+     * @param limit   most events returned
+     * @return the events in the range
+     */
+    @Override
+    public synchronized List<CalendarEvent> range(long fromKey, long toKey, int limit) {
+        int[] slots = entries.slotsBetween(fromKey, toKey, limit);
+        if (slots.length == 0) {
+            return Collections.emptyList();
+        }
+        ArrayList<CalendarEvent> eventList = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            eventList.add(readSlot(slot));
+        }
+        return Collections.unmodifiableList(eventList);
+    }
+
+    @Override
+    public synchronized long[] keys() {
+        return entries.keys();
+    }
+
+    @Override
+    public boolean keepsEventObjects() {
+        return false;
+    }
+
+    /**
+     * Forces the events to disk and saves the index, then marks the store on disk as unchanged.
+     *
+     * @throws IOException when the index can not be saved, the store is then rebuilt when opened
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!isDirty) {
+            return;
+        }
+        writeIndex();
+        data.force();
+        data.putInt(DIRTY_AT, 0);
+        data.force();
+        isDirty = false;
+    }
+
+    /**
+     * Saves the changes and closes the file.
+     */
+    public synchronized void close() {
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            dataFile.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Accessor for slotBytes.
+     *
+     * @return size of a slot in bytes
+     */
+    public int getSlotBytes() {
+        return slotBytes;
+    }
+
+    /**
+     * Accessor for the number of slots ever used, free slots included.
+     *
+     * @return number of slots
+     */
+    synchronized int getSlotCount() {
+        return data.getInt(SLOT_COUNT_AT);
+    }
+
+    /**
+     * Marks the store on disk as changed before its first change after a flush.
+     */
+    private void markDirty() {
+        if (!isDirty) {
+            data.putInt(DIRTY_AT, 1);
+            data.force();
+            isDirty = true;
+        }
+    }
+
+    /**
+     * Saves the index next to the store.
+     *
+     * @throws IOException when the index can not be written
+     */
+    private void writeIndex() throws IOException {
+        FileOutputStream fileOut = new FileOutputStream(indexFile);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            out.writeInt(0);
+            out.writeLong(data.getLong(SEQUENCE_AT));
+            out.write(new byte[HEADER_BYTES - INDEX_SEQUENCE_AT - 8]);
+            entries.writeEntries(out);
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+    }
+
+    /**
+     * Reads the index saved by the last flush.
+     *
+     * @return true if the index belongs to the store as it is on disk
+     */
+    private boolean readIndex() {
+        if (!indexFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            int count = in.readInt();
+            in.readInt();
+            if (in.readLong() != data.getLong(SEQUENCE_AT)) {
+                return false;
+            }
+            in.readFully(new byte[HEADER_BYTES - INDEX_SEQUENCE_AT - 8]);
+            int slotCount = data.getInt(SLOT_COUNT_AT);
+            long lastKey = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                long key = in.readLong();
+                int slot = in.readInt();
+                if ((i > 0 && key <= lastKey) || slot < 0 || slot >= slotCount) {
+                    entries.clear();
+                    return false;
+                }
+                entries.put(key, slot);
+                lastKey = key;
+            }
+            return in.read() < 0;
+        } catch (IOException e) {
+            entries.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Makes the index and the free list again from the headers of all slots. A slot that can not be decoded
+     * is freed, and of two slots with the same arrival time the one written last is kept.
+     */
+    private void rebuildIndex() {
+        entries.clear();
+        data.putInt(FREE_HEAD_AT, FREE);
+        int slotCount = (int) Math.min(data.getInt(SLOT_COUNT_AT), (data.capacity() - HEADER_BYTES) / slotBytes);
+        data.putInt(SLOT_COUNT_AT, slotCount);
+        long nextSequence = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = (int) slotOffset(slot);
+            int length = data.getInt(offset + 8);
+            if (length <= 0 || length > slotBytes - SLOT_HEADER_BYTES || !isReadable(slot)) {
+                freeSlot(slot);
+                continue;
+            }
+            long key = data.getLong(offset);
+            long sequence = data.getLong(offset + 12);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            int otherSlot = entries.get(key);
+            if (otherSlot == SlotIndex.NONE) {
+                entries.put(key, slot);
+            } else if (data.getLong((int) slotOffset(otherSlot) + 12) < sequence) {
+                entries.put(key, slot);
+                freeSlot(otherSlot);
+            } else {
+                freeSlot(slot);
+            }
+        }
+        data.putLong(SEQUENCE_AT, nextSequence);
+    }
+
+    /**
+     * Checks if the event of a slot can be decoded.
+     *
+     * @param slot the slot
+     * @return true if it can
+     */
+    private boolean isReadable(int slot) {
+        try {
+            readSlot(slot);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private long slotOffset(int slot) {
+        return HEADER_BYTES + (long) slot * slotBytes;
+    }
+
+    /**
+     * Decodes the event of a slot.
+     *
+     * @param slot the slot
+     * @return the event
+     */
+    private CalendarEvent readSlot(int slot) {
+        int offset = (int) slotOffset(slot);
+        byte[] bytes = new byte[data.getInt(offset + 8)];
+        ByteBuffer source = data.duplicate();
+        source.position(offset + SLOT_HEADER_BYTES);
+        source.get(bytes);
+        try {
+            return EventCodec.decode(bytes).get(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Damaged slot " + slot, e);
+        }
+    }
+
+    /**
+     * Writes an event into a slot, with the next sequence number so a later copy of the event wins.
+     *
+     * @param slot  the slot
+     * @param key   arrival time in epoch milliseconds
+     * @param bytes the event written by EventCodec
+     */
+    private void writeSlot(int slot, long key, byte[] bytes) {
+        int offset = (int) slotOffset(slot);
+        ByteBuffer target = data.duplicate();
+        target.position(offset + SLOT_HEADER_BYTES);
+        target.put(bytes);
+        long sequence = data.getLong(SEQUENCE_AT);
+        data.putLong(SEQUENCE_AT, sequence + 1);
+        data.putLong(offset, key);
+        data.putLong(offset + 12, sequence);
+        data.putInt(offset + 8, bytes.length);
+    }
+
+    /**
+     * Adds a slot to the free list.
+     *
+     * @param slot the slot
+     */
+    private void freeSlot(int slot) {
+        int offset = (int) slotOffset(slot);
+        data.putLong(offset, data.getInt(FREE_HEAD_AT));
+        data.putInt(offset + 8, FREE);
+        data.putInt(FREE_HEAD_AT, slot);
+    }
+
+    /**
+     * Takes a slot from the free list, or a new one at the end of the file.
+     *
+     * @return the slot
+     * @throws EventNotStoredException when the file can not grow
+     */
+    private int allocateSlot() {
+        int slot = data.getInt(FREE_HEAD_AT);
+        if (slot != FREE) {
+            markDirty();
+            data.putInt(FREE_HEAD_AT, (int) data.getLong((int) slotOffset(slot)));
+            return slot;
+        }
+        slot = data.getInt(SLOT_COUNT_AT);
+        if (slotOffset(slot + 1) > data.capacity()) {
+            grow(slotOffset(slot + 1));
+        }
+        markDirty();
+        data.putInt(SLOT_COUNT_AT, slot + 1);
+        return slot;
+    }
+
+    /**
+     * Maps the file again with at least twice the size, up to the largest mapping.
+     *
+     * @param bytes smallest size needed
+     * @throws EventNotStoredException when the file can not grow
+     */
+    private void grow(long bytes) {
+        long size = Math.min(Math.max(bytes, 2L * data.capacity()), Integer.MAX_VALUE);
+        if (bytes > size) {
+            throw new EventNotStoredException("The event store is full, it holds at most "
+                    + (Integer.MAX_VALUE - HEADER_BYTES) / slotBytes + " events.");
+        }
+        try {
+            data.force();
+            data = map(dataFile, size);
+        } catch (IOException e) {
+            throw new EventNotStoredException("The event store could not grow: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Class MemoryEventStore keeps all events in the heap in a concurrent skip list, so any number of threads
+ * can read and change it at once. It is the store used by default, the events are saved to a file by the model.
+ */
+public class MemoryEventStore implements EventStore {
+    private ConcurrentSkipListMap<Long, CalendarEvent> events;
+
+    /**
+     * Constructor for the class.
+     */
+    public MemoryEventStore() {
+        events = new ConcurrentSkipListMap<>();
+    }
+
+    @Override
+    public CalendarEvent get(long key) {
+        return events.get(key);
+    }
+
+    @Override
+    public void put(long key, CalendarEvent event) {
+        events.put(key, event);
+    }
+
+    @Override
+    public boolean remove(long key) {
+        return events.remove(key) != null;
+    }
+
+    @Override
+    public void clear() {
+        events.clear();
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        return events.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return events.size();
+    }
+
+    @Override
+    public List<CalendarEvent> range(long fromKey, long toKey, int limit) {
+        if (fromKey >= toKey) {
+            return Collections.emptyList();
+        }
+        Collection<CalendarEvent> source = events.subMap(fromKey, toKey).values();
+        // the size of a skip list is counted one by one, so the list grows as needed instead
+        ArrayList<CalendarEvent> eventListForModel = new ArrayList<>();
+        for (CalendarEvent event : source) {
+            if (eventListForModel.size() >= limit) {
+                break;
+            }
+            eventListForModel.add(event);
+        }
+        return Collections.unmodifiableList(eventListForModel);
+    }
+
+    @Override
+    public long[] keys() {
+        // the skip list may change while it is read, so the array grows as needed
+        long[] keys = new long[16];
+        int count = 0;
+        for (Long key : events.keySet()) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+            }
+            keys[count++] = key;
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    @Override
+    public boolean keepsEventObjects() {
+        return true;
+    }
+
+    @Override
+    public void flush() {
+    }
+}
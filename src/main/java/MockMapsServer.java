@@ -0,0 +1,261 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class MockMapsServer is a local stand in for the google maps web services, so the whole request path
+ * can be load tested without using API quota. It serves recorded Directions, Place Details and Distance Matrix
+ * responses with a configurable latency and error rate.
+ * <p>
+ * Recorded responses are read from a directory: directions.json, distancematrix.json and
+ * place_details_PLACEID.json (or place_details.json for any place). Missing files fall back to a built in
+ * Mountain View to San Jose State University trip.
+ * <p>
+ * Usage: MockMapsServer [port] [recording directory] [median latency ms] [latency spread] [error rate]
+ */
+public class MockMapsServer {
+    public final static String DIRECTIONS_PATH = "/maps/api/directions/json";
+    public final static String PLACE_DETAILS_PATH = "/maps/api/place/details/json";
+    public final static String DISTANCE_MATRIX_PATH = "/maps/api/distancematrix/json";
+    private final static String ERROR_RESPONSE =
+            "{\"status\":\"OVER_QUERY_LIMIT\",\"error_message\":\"Mock error\"}";
+    private final static String DEFAULT_DIRECTIONS = "{\"status\":\"OK\",\"geocoded_waypoints\":["
+            + "{\"geocoder_status\":\"OK\",\"place_id\":\"mock-origin\",\"types\":[\"locality\",\"political\"]},"
+            + "{\"geocoder_status\":\"OK\",\"place_id\":\"mock-destination\",\"types\":[\"university\"]}],"
+            + "\"routes\":[{\"summary\":\"US-101 S\",\"overview_polyline\":{\"points\":\"\"},"
+            + "\"legs\":[{\"duration\":{\"value\":1200,\"text\":\"20 mins\"},"
+            + "\"duration_in_traffic\":{\"value\":1500,\"text\":\"25 mins\"},"
+            + "\"distance\":{\"value\":27359,\"text\":\"17.0 mi\"},"
+            + "\"start_address\":\"Mountain View, CA, USA\","
+            + "\"end_address\":\"1 Washington Sq, San Jose, CA 95192, USA\",\"steps\":[]}]}]}";
+    private final static String DEFAULT_DISTANCE_MATRIX = "{\"status\":\"OK\","
+            + "\"origin_addresses\":[\"Mountain View, CA, USA\"],"
+            + "\"destination_addresses\":[\"1 Washington Sq, San Jose, CA 95192, USA\"],"
+            + "\"rows\":[{\"elements\":[{\"status\":\"OK\",\"duration\":{\"value\":1200,\"text\":\"20 mins\"},"
+            + "\"distance\":{\"value\":27359,\"text\":\"17.0 mi\"}}]}]}";
+    private final static String DEFAULT_PLACE_DETAILS = "{\"status\":\"OK\",\"result\":{"
+            + "\"place_id\":\"%s\",\"name\":\"%s\",\"rating\":4.2,\"price_level\":1,"
+            + "\"opening_hours\":{\"weekday_text\":[\"Monday: 7:00 AM to 10:00 PM\"]}}}";
+    private HttpServer server;
+    private File recordingDir;
+    private Random random;
+    private long medianLatencyMillis = 0;
+    private double latencySpread = 0;
+    private volatile double errorRate = 0;
+    private AtomicLong requestCount;
+    private AtomicLong errorCount;
+
+    /**
+     * Constructor for the class.
+     *
+     * @param port         port to listen on, 0 picks a free port
+     * @param recordingDir directory of recorded responses, null to use the built in trip
+     * @throws IOException when the server can not be started
+     */
+    public MockMapsServer(int port, File recordingDir) throws IOException {
+        this.recordingDir = recordingDir;
+        random = new Random();
+        requestCount = new AtomicLong();
+        errorCount = new AtomicLong();
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(DIRECTIONS_PATH, exchange ->
+                respond(exchange, readRecording("directions.json", DEFAULT_DIRECTIONS)));
+        server.createContext(DISTANCE_MATRIX_PATH, exchange ->
+                respond(exchange, readRecording("distancematrix.json", DEFAULT_DISTANCE_MATRIX)));
+        server.createContext(PLACE_DETAILS_PATH, exchange ->
+                respond(exchange, readPlaceDetails(readQueryValue(exchange, "placeid"))));
+    }
+
+    /**
+     * Starts a mock server from the command line.
+     *
+     * @param args port, recording directory, median latency ms, latency spread and error rate
+     * @throws IOException when the server can not be started
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length >= 1 ? Integer.parseInt(args[0]) : 8089;
+        File recordingDir = args.length >= 2 ? new File(args[1]) : null;
+        MockMapsServer server = new MockMapsServer(port, recordingDir);
+        if (args.length >= 4) {
+            server.setLatency(Long.parseLong(args[2]), Double.parseDouble(args[3]));
+        }
+        if (args.length >= 5) {
+            server.setErrorRate(Double.parseDouble(args[4]));
+        }
+        server.start();
+        System.out.println("Mock maps server at " + server.getBaseUrl());
+    }
+
+    /**
+     * Starts the server.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        server.stop(0);
+        ((java.util.concurrent.ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    /**
+     * Gets the url to give to DataRequest.
+     *
+     * @return base url of the server
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Sets the latency of responses. Latency follows a log normal distribution around the median,
+     * a spread of 0 makes every response take the median.
+     *
+     * @param medianLatencyMillis median latency in milliseconds
+     * @param latencySpread       standard deviation of the log of the latency
+     */
+    public void setLatency(long medianLatencyMillis, double latencySpread) {
+        this.medianLatencyMillis = medianLatencyMillis;
+        this.latencySpread = latencySpread;
+    }
+
+    /**
+     * Sets the part of responses that fail with OVER_QUERY_LIMIT.
+     *
+     * @param errorRate rate between 0 and 1
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Accessor for requestCount.
+     *
+     * @return number of requests served
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Accessor for errorCount.
+     *
+     * @return number of requests answered with an error
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Sends a response after the simulated latency.
+     *
+     * @param exchange the http exchange
+     * @param body     json body to send
+     * @throws IOException when the response can not be written
+     */
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            Thread.sleep(nextLatency());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (random.nextDouble() < errorRate) {
+            errorCount.incrementAndGet();
+            body = ERROR_RESPONSE;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    /**
+     * Draws the latency of one response.
+     *
+     * @return latency in milliseconds
+     */
+    private long nextLatency() {
+        if (medianLatencyMillis <= 0) {
+            return 0;
+        }
+        return (long) (medianLatencyMillis * Math.exp(latencySpread * random.nextGaussian()));
+    }
+
+    /**
+     * Reads the place details of a place.
+     *
+     * @param placeId google place ID
+     * @return json of the place details
+     */
+    private String readPlaceDetails(String placeId) {
+        String defaultName = "mock-origin".equals(placeId) ? "Mountain View" : "San Jose State University";
+        String defaultDetails = String.format(DEFAULT_PLACE_DETAILS, placeId, defaultName);
+        return readRecording("place_details_" + placeId + ".json",
+                readRecording("place_details.json", defaultDetails));
+    }
+
+    /**
+     * Reads a recorded response.
+     *
+     * @param fileName     name of the recording
+     * @param defaultValue response used when there is no recording
+     * @return json of the response
+     */
+    private String readRecording(String fileName, String defaultValue) {
+        if (recordingDir == null) {
+            return defaultValue;
+        }
+        File file = new File(recordingDir, fileName);
+        if (!file.exists()) {
+            return defaultValue;
+        }
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Reads a value from the query string of a request.
+     *
+     * @param exchange the http exchange
+     * @param name     name of the value
+     * @return the value or an empty string
+     */
+    private static String readQueryValue(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return "";
+        }
+        for (String pair : query.split("&")) {
+            String[] keyValue = pair.split("=", 2);
+            if (keyValue[0].equals(name) && keyValue.length == 2) {
+                try {
+                    return URLDecoder.decode(keyValue[1], "UTF-8");
+                } catch (IOException e) {
+                    return keyValue[1];
+                }
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,195 @@
+import javax.swing.SwingUtilities;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class ModelEventBus tells listeners about changes of the model without making the changing thread wait.
+ * Changes are collected into a ChangeSet of the arrival times added, removed and edited, and the set is
+ * given to every listener on the event dispatch thread. Deliveries are at least an interval apart, so
+ * a burst of changes such as a restore or an import costs one refresh of the windows instead of one per event.
+ */
+public class ModelEventBus {
+    public final static long DEFAULT_INTERVAL_MILLIS = 100;
+    private final static ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "ModelEventBus");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private CopyOnWriteArrayList<Listener> listeners;
+    private long intervalMillis;
+    private ChangeSet pending;
+    private boolean isScheduled = false;
+    private long lastDeliveryMillis = 0;
+    private long deliveryCount = 0;
+
+    /**
+     * Constructor for the class.
+     *
+     * @param intervalMillis shortest time between two deliveries
+     */
+    public ModelEventBus(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+        listeners = new CopyOnWriteArrayList<>();
+        pending = new ChangeSet();
+    }
+
+    /**
+     * Adds a listener, it gets a ChangeSet on the event dispatch thread.
+     *
+     * @param l adding listener
+     */
+    public void addListener(Listener l) {
+        listeners.add(l);
+    }
+
+    /**
+     * Tells that an event was added.
+     *
+     * @param key arrival time of the event in epoch milliseconds
+     */
+    public synchronized void added(long key) {
+        pending.add(key);
+        schedule();
+    }
+
+    /**
+     * Tells that an event was removed.
+     *
+     * @param key arrival time of the event in epoch milliseconds
+     */
+    public synchronized void removed(long key) {
+        pending.remove(key);
+        schedule();
+    }
+
+    /**
+     * Tells that an event was edited.
+     *
+     * @param key arrival time of the event in epoch milliseconds
+     */
+    public synchronized void edited(long key) {
+        pending.edit(key);
+        schedule();
+    }
+
+    /**
+     * Tells that all events may have changed.
+     */
+    public synchronized void reloaded() {
+        pending.isReloaded = true;
+        schedule();
+    }
+
+    /**
+     * Schedules a delivery unless one is already waiting, the caller holds the lock of the bus.
+     */
+    private void schedule() {
+        if (isScheduled) {
+            return;
+        }
+        isScheduled = true;
+        long delayMillis = Math.max(0, lastDeliveryMillis + intervalMillis - System.currentTimeMillis());
+        SCHEDULER.schedule(() -> SwingUtilities.invokeLater(this::deliver), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gives the changes collected so far to the listeners, it runs on the event dispatch thread.
+     * Changes made while the delivery waited for the thread are delivered too.
+     */
+    private void deliver() {
+        ChangeSet changes;
+        synchronized (this) {
+            changes = pending;
+            pending = new ChangeSet();
+            isScheduled = false;
+            lastDeliveryMillis = System.currentTimeMillis();
+            deliveryCount++;
+        }
+        for (Listener l : listeners) {
+            l.update(changes);
+        }
+    }
+
+    /**
+     * Accessor for deliveryCount.
+     *
+     * @return number of change sets delivered
+     */
+    public synchronized long getDeliveryCount() {
+        return deliveryCount;
+    }
+
+    /**
+     * The changes of the model between two deliveries. An event added and removed again is left out,
+     * an event removed and added again counts as edited.
+     */
+    public static class ChangeSet {
+        private TreeSet<Long> added = new TreeSet<>();
+        private TreeSet<Long> removed = new TreeSet<>();
+        private TreeSet<Long> edited = new TreeSet<>();
+        private boolean isReloaded = false;
+
+        private void add(long key) {
+            if (removed.remove(key)) {
+                edited.add(key);
+            } else {
+                added.add(key);
+            }
+        }
+
+        private void remove(long key) {
+            if (!added.remove(key)) {
+                edited.remove(key);
+                removed.add(key);
+            }
+        }
+
+        private void edit(long key) {
+            if (!added.contains(key)) {
+                edited.add(key);
+            }
+        }
+
+        /**
+         * Accessor for added.
+         *
+         * @return arrival times of the events added
+         */
+        public Set<Long> getAdded() {
+            return Collections.unmodifiableSet(added);
+        }
+
+        /**
+         * Accessor for removed.
+         *
+         * @return arrival times of the events removed
+         */
+        public Set<Long> getRemoved() {
+            return Collections.unmodifiableSet(removed);
+        }
+
+        /**
+         * Accessor for edited.
+         *
+         * @return arrival times of the events edited
+         */
+        public Set<Long> getEdited() {
+            return Collections.unmodifiableSet(edited);
+        }
+
+        /**
+         * Checks if all events may have changed, for example after they were read from file again.
+         *
+         * @return true or false
+         */
+        public boolean isReloaded() {
+            return isReloaded;
+        }
+    }
+}
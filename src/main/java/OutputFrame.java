@@ -71,6 +71,9 @@ public class OutputFrame extends JFrame implements Listener {
         calendarListElement = new CalendarListElement(3, 30);
         calendarListElement.addListener(this);
         list.setCellRenderer(calendarListElement);
+        // with a fixed cell size the list only reads the events it shows, not all of them to measure
+        list.setFixedCellHeight(calendarListElement.getPreferredSize().height);
+        list.setFixedCellWidth(calendarListElement.getPreferredSize().width);
         scrollPane = new JScrollPane(list);
         scrollPane.setPreferredSize(new Dimension(4 * size / 5, 4 * size / 5));
         listPanel.add(scrollPane, BorderLayout.CENTER);
@@ -178,7 +181,7 @@ public class OutputFrame extends JFrame implements Listener {
         eventInfo.append(",");
         eventInfo.append(info.getDestinationRating());
         eventInfo.append(",");
-        eventInfo.append(getTransportValue(event.transport));
+        eventInfo.append(event.hasModeDurations() ? getModeDurationValue(event) : getTransportValue(event.transport));
         eventInfo.append(",");
         eventInfo.append(event.getTravelTime());
         eventInfo.append(",");
@@ -269,15 +272,32 @@ public class OutputFrame extends JFrame implements Listener {
     }
 
     /**
-     * Updates the event list with the new event.
+     * Updates the event list once for all changes of the model since the last update.
      *
-     * @param ob updating info object
+     * @param ob the changes, a ModelEventBus.ChangeSet
      */
     @Override
     public void update(Object ob) {
         listModel.updateList();
     }
 
+    /**
+     * this method is only for collect ML training data
+     * it fills the mode columns with minutes of travel when all modes were requested
+     */
+    public String getModeDurationValue(EventWithInfo event) {
+        StringBuilder str = new StringBuilder();
+        for (String s : transportType) {
+            int durationMin = event.getModeDurationInMin(s);
+            if (durationMin >= 0) {
+                str.append(durationMin);
+            }
+            str.append(",");
+        }
+        str.deleteCharAt(str.length() - 1);
+        return str.toString();
+    }
+
     /**
      * this method is only for collect ML training data
      */
@@ -0,0 +1,240 @@
+import com.google.maps.model.OpeningHours;
+import com.google.maps.model.PlaceDetails;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class PlaceDetailsCache keeps Google place details on disk keyed by place ID.
+ * Place IDs of home, office or campus rarely change, so their details are reused across runs until they expire.
+ * New details are saved a moment later on a background thread, so the places of many trips are saved in one
+ * write and the thread answering google never writes the file. Details not saved yet are saved when the
+ * program ends.
+ */
+public class PlaceDetailsCache {
+    public final static long DEFAULT_TTL_DAY = 30;
+    public final static long SAVE_DELAY_MILLIS = 2000;
+    private final static long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    private final static ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "PlaceDetailsCache");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private HashMap<String, CachedPlace> places;
+    private File file;
+    private long ttlMillis;
+    // one save writes the file at a time
+    private final Object saveLock = new Object();
+    private boolean isDirty = false;
+    private boolean isSaveScheduled = false;
+    private boolean isShutdownHookAdded = false;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * Constructor for the class with default time to live.
+     *
+     * @param filePath file path that save old place details
+     */
+    public PlaceDetailsCache(String filePath) {
+        this(filePath, DEFAULT_TTL_DAY);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param filePath file path that save old place details
+     * @param ttlDay   days a place detail stays valid
+     */
+    public PlaceDetailsCache(String filePath, long ttlDay) {
+        places = new HashMap<>();
+        ttlMillis = ttlDay * MILLIS_PER_DAY;
+        file = new File(filePath);
+        if (file.exists()) {
+            restoreFromFile();
+        }
+    }
+
+    /**
+     * Gets place details from the cache.
+     *
+     * @param placeId google place ID
+     * @return the cached details or null if they are missing or expired
+     */
+    public synchronized PlaceDetails get(String placeId) {
+        CachedPlace place = places.get(placeId);
+        if (place == null || place.expireAt <= System.currentTimeMillis()) {
+            if (place != null) {
+                places.remove(placeId);
+            }
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return place.details;
+    }
+
+    /**
+     * Adds place details to the cache, the cache is saved to file in the background.
+     *
+     * @param placeId google place ID
+     * @param details details returned by google
+     */
+    public synchronized void put(String placeId, PlaceDetails details) {
+        places.put(placeId, new CachedPlace(copyNeededFields(details),
+                System.currentTimeMillis() + ttlMillis));
+        isDirty = true;
+        if (!isShutdownHookAdded) {
+            isShutdownHookAdded = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "PlaceDetailsCache-flush"));
+        }
+        if (!isSaveScheduled) {
+            isSaveScheduled = true;
+            SCHEDULER.schedule(() -> {
+                synchronized (this) {
+                    isSaveScheduled = false;
+                }
+                flush();
+            }, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Saves the cache to file if details were added since the last save.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (!isDirty) {
+                return;
+            }
+        }
+        saveToFile();
+    }
+
+    /**
+     * Copies only the fields the program uses, the rest of PlaceDetails is not needed and not all of it is
+     * serializable.
+     *
+     * @param details details returned by google
+     * @return a small copy of the details
+     */
+    private static PlaceDetails copyNeededFields(PlaceDetails details) {
+        PlaceDetails copy = new PlaceDetails();
+        copy.placeId = details.placeId;
+        copy.name = details.name;
+        copy.rating = details.rating;
+        copy.priceLevel = details.priceLevel;
+        copy.types = details.types;
+        if (details.openingHours != null) {
+            copy.openingHours = new OpeningHours();
+            copy.openingHours.weekdayText = details.openingHours.weekdayText;
+        }
+        return copy;
+    }
+
+    /**
+     * Saves all place details to file. They are written next to the old file and renamed in place,
+     * so a crash while writing keeps the old cache instead of a broken one. The cache is only locked
+     * while it is copied, lookups do not wait for the file.
+     */
+    public void saveToFile() {
+        synchronized (saveLock) {
+            HashMap<String, CachedPlace> savedPlaces;
+            synchronized (this) {
+                savedPlaces = new HashMap<>(places);
+                isDirty = false;
+            }
+            File tempFile = new File(file.getPath() + ".tmp");
+            try {
+                FileOutputStream fileOut = new FileOutputStream(tempFile);
+                ObjectOutputStream out = new ObjectOutputStream(fileOut);
+                out.writeObject(savedPlaces);
+                out.close();
+                fileOut.close();
+                if (!tempFile.renameTo(file)) {
+                    file.delete();
+                    if (!tempFile.renameTo(file)) {
+                        throw new IOException("Can not replace " + file);
+                    }
+                }
+            } catch (IOException i) {
+                i.printStackTrace();
+                synchronized (this) {
+                    isDirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores place details from file, expired ones and entries of an unknown type are dropped.
+     */
+    private void restoreFromFile() {
+        Object saved;
+        try {
+            FileInputStream fileInput = new FileInputStream(file);
+            ObjectInputStream inputStream = new ObjectInputStream(fileInput);
+            saved = inputStream.readObject();
+            inputStream.close();
+            fileInput.close();
+        } catch (Exception e) {
+            return;
+        }
+        if (!(saved instanceof Map)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) saved).entrySet()) {
+            if (entry.getKey() instanceof String && entry.getValue() instanceof CachedPlace
+                    && ((CachedPlace) entry.getValue()).expireAt > now) {
+                places.put((String) entry.getKey(), (CachedPlace) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Accessor for the number of cached places.
+     *
+     * @return number of places
+     */
+    public synchronized int size() {
+        return places.size();
+    }
+
+    /**
+     * Accessor for hitCount.
+     *
+     * @return number of lookups served from the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Accessor for missCount.
+     *
+     * @return number of lookups that needed the google API
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Place details with the time they stop being valid.
+     */
+    private static class CachedPlace implements Serializable {
+        private static final long serialVersionUID = -1183730697603672607L;
+        private PlaceDetails details;
+        private long expireAt;
+
+        private CachedPlace(PlaceDetails details, long expireAt) {
+            this.details = details;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * A class that holds a partly filled form, sent to listeners so the trip can be looked up before the user submits.
+ */
+public class PrefetchRequest {
+    private RawUserInput input;
+
+    /**
+     * Constructor for the class.
+     *
+     * @param input the input filled so far
+     */
+    public PrefetchRequest(RawUserInput input) {
+        this.input = input;
+    }
+
+    /**
+     * Accessor for input.
+     *
+     * @return the input filled so far
+     */
+    public RawUserInput getInput() {
+        return input;
+    }
+
+    /**
+     * Checks if the input is complete enough to be looked up: both addresses, an arrival time in the future
+     * and a mode of transportation. A trip looked up with less would never be asked for again.
+     *
+     * @param input     the input filled so far
+     * @param nowMillis current time in epoch milliseconds
+     * @return true if the trip can be looked up
+     */
+    public static boolean isComplete(RawUserInput input, long nowMillis) {
+        return input.getAddressFrom() != null && input.getAddressFrom().trim().length() > 0
+                && input.getAddressTo() != null && input.getAddressTo().trim().length() > 0
+                && input.getArrivalDateTime().getTimeInMillis() > nowMillis
+                && isTransport(input.getTransport());
+    }
+
+    private static boolean isTransport(String transport) {
+        return CalendarEvent.DRIVING_TYPE.equals(transport) || CalendarEvent.BIKING_TYPE.equals(transport)
+                || CalendarEvent.WALKING_TYPE.equals(transport) || CalendarEvent.TRANSIT_TYPE.equals(transport);
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class Prefetcher looks up a trip in the background while the user is still filling the form,
+ * so the route and place details are already cached when the user submits.
+ * Only the latest form is looked up, older lookups that have not started are cancelled.
+ * Forms are only looked up once they are complete, and at most a budget of lookups is sent per minute,
+ * so abandoned forms spend little quota. Lookups go to the data source below the circuit breaker,
+ * so a failed lookup does not count against the requests of the user.
+ */
+public class Prefetcher {
+    public final static int DEFAULT_BUDGET_PER_MIN = 6;
+    private final static long MILLIS_PER_MIN = 60 * 1000;
+    private MapDataSource dataSource;
+    private int budgetPerMin;
+    private ExecutorService executor;
+    private Future<?> pendingPrefetch;
+    private String lastKey = "";
+    private long budgetStartMillis = 0;
+    private int budgetUsed = 0;
+    private long prefetchCount = 0;
+    private long overBudgetCount = 0;
+
+    /**
+     * Constructor for the class with the default budget.
+     *
+     * @param dataSource source of trip information shared with the estimation workers
+     */
+    public Prefetcher(MapDataSource dataSource) {
+        this(dataSource, DEFAULT_BUDGET_PER_MIN);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param dataSource   source of trip information shared with the estimation workers
+     * @param budgetPerMin most lookups started per minute
+     */
+    public Prefetcher(MapDataSource dataSource, int budgetPerMin) {
+        this.dataSource = dataSource;
+        this.budgetPerMin = budgetPerMin;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Prefetcher");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts looking up a trip, replacing the lookup of an older form.
+     *
+     * @param ob the input filled so far
+     * @return true if a lookup was started
+     */
+    public boolean prefetch(RawUserInput ob) {
+        return prefetch(ob, System.currentTimeMillis());
+    }
+
+    /**
+     * Starts looking up a trip if the form is complete and the budget allows it.
+     *
+     * @param ob        the input filled so far
+     * @param nowMillis current time in epoch milliseconds
+     * @return true if a lookup was started
+     */
+    synchronized boolean prefetch(RawUserInput ob, long nowMillis) {
+        if (!PrefetchRequest.isComplete(ob, nowMillis)) {
+            return false;
+        }
+        String key = RouteCache.createKey(ob.getAddressFrom(), ob.getAddressTo(), ob.getTransport(),
+                ob.getArrivalDateTime());
+        if (key.equals(lastKey)) {
+            return false;
+        }
+        if (nowMillis - budgetStartMillis >= MILLIS_PER_MIN) {
+            budgetStartMillis = nowMillis;
+            budgetUsed = 0;
+        }
+        if (budgetUsed >= budgetPerMin) {
+            overBudgetCount++;
+            return false;
+        }
+        budgetUsed++;
+        lastKey = key;
+        cancel();
+        prefetchCount++;
+        pendingPrefetch = executor.submit(() -> {
+            try {
+                dataSource.requestMapData(ob.getAddressFrom(), ob.getAddressTo(), ob.getTransport(),
+                        ob.getArrivalDateTime());
+            } catch (RuntimeException e) {
+                // nothing is waiting for a lookup, the submit asks again
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Cancels the lookup that has not started yet.
+     */
+    public synchronized void cancel() {
+        if (pendingPrefetch != null) {
+            pendingPrefetch.cancel(false);
+            pendingPrefetch = null;
+        }
+    }
+
+    /**
+     * Accessor for prefetchCount.
+     *
+     * @return number of lookups started
+     */
+    public synchronized long getPrefetchCount() {
+        return prefetchCount;
+    }
+
+    /**
+     * Accessor for overBudgetCount.
+     *
+     * @return number of complete forms not looked up because the budget was used
+     */
+    public synchronized long getOverBudgetCount() {
+        return overBudgetCount;
+    }
+}
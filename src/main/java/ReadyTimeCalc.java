@@ -1,20 +1,19 @@
+import javax.swing.*;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.GregorianCalendar;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 /**
  * A class calculates the time it would take for the user to prepare for an event set at a specified place,
  * using specified mode of transportation, and taking into account the level of priority of the event.
+ * It keeps no state of a single event, so several worker threads can run the same instance.
  */
 public class ReadyTimeCalc implements Runnable {
     private EventModel model;
-    private PopUpFrame popUp;
     private OutputFrame outputFrame;
-    private CalendarEvent currentEvent;
     private Controller controller;
-    private DataRequest dataRequest;
+    private MapDataSource dataSource;
     private boolean isDryRun;
 
 
@@ -26,24 +25,53 @@ public class ReadyTimeCalc implements Runnable {
      * @param controller  controller of the program
      */
     public ReadyTimeCalc(EventModel model, OutputFrame outputFrame, Controller controller, boolean isDryRun) {
-        this.isDryRun = isDryRun;
-        String apiKey = readApiKey();
-        if (apiKey.length()>0 && !isDryRun){
-            this.dataRequest = new DataRequest(apiKey);
-        }else {
-            this.isDryRun = true;
-        }
+        this(model, outputFrame, controller, isDryRun ? null : createDataSource(readApiKey()));
+    }
+
+    /**
+     * Constructor for the class with a given data source.
+     *
+     * @param model       model that using to get values
+     * @param outputFrame output of the program
+     * @param controller  controller of the program
+     * @param dataSource  source of trip information, null to run without the API
+     */
+    public ReadyTimeCalc(EventModel model, OutputFrame outputFrame, Controller controller, MapDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.isDryRun = dataSource == null;
         this.controller = controller;
         this.model = model;
         this.outputFrame = outputFrame;
     }
 
+    /**
+     * Constructor for the class without user interface, used to estimate events in bulk.
+     *
+     * @param dataSource source of trip information, null to run without the API
+     */
+    public ReadyTimeCalc(MapDataSource dataSource) {
+        this(null, null, null, dataSource);
+    }
+
+    /**
+     * Creates the default data source for an api key, with a deadline per event like the program uses.
+     *
+     * @param apiKey required key to call google API
+     * @return the data source or null if there is no api key
+     */
+    private static MapDataSource createDataSource(String apiKey) {
+        if (apiKey.length() > 0) {
+            return new CircuitBreakerDataSource(new CoalescingDataSource(new DataRequest(apiKey)));
+        }
+        return null;
+    }
+
     /**
      * Gets the api key from a file.
      *
      * @return api key
      */
-    private static String readApiKey() {
+    static String readApiKey() {
         File input = new File("API_Key.txt");
         Scanner scanner;
         String apiKey = "";
@@ -56,122 +84,130 @@ public class ReadyTimeCalc implements Runnable {
         } catch(NoSuchElementException e){
             apiKey = "";
         }
-        System.out.println(apiKey);
         return apiKey;
     }
 
     /**
-     * Runs the program.
+     * Runs the program. A failed event is skipped, the worker only stops when it is interrupted.
      */
     @Override
     public void run() {
         while (true) {
+            RawUserInput ob = model.getEventToProcess();
+            if (ob == null) {
+                break;
+            }
             try {
-                requestData(model.getEventToProcess());
-                System.out.println("no Exception");
-            } catch (Exception e) {
+                requestData(ob);
+            } catch (RuntimeException e) {
                 e.printStackTrace();
-                break;
             }
         }
     }
 
     /**
      * Process the raw input from user and call api on that information.
+     * The pop up is made on the event dispatch thread, the worker only waits for the api.
      *
      * @param ob information object
      */
     private void requestData(RawUserInput ob) {
-        GregorianCalendar arrivalDateTime = ob.getArrivalDateTime();
-        boolean gotInfoSuccessfully;
-        String destName;
-        String originName;
-        long durationSec;
-        int distanceInMile;
-        double rating;
-        String startAddress;
-        String endAddress;
-        double importantScale = ob.getImportantScale();
+        CalendarEvent event = estimate(ob);
+        SwingUtilities.invokeLater(() -> createsButtonOfPopUp(event, event.createPopUp()));
+    }
+
+    /**
+     * Calls api on the raw input and creates the event with its alarm time.
+     * When google can not be reached the event is created without info.
+     *
+     * @param ob information object
+     * @return the estimated event
+     */
+    public CalendarEvent estimate(RawUserInput ob) {
+        RouteInfo info;
 
         // this is for example without using API Key
         if (isDryRun) {
-            originName =  "Mountain View, CA";
-            destName = "San Jose State University";
-            durationSec = 20 * 60;
-            distanceInMile = 17;
-            rating = 3.0;
-            startAddress = "Mountain View, CA";
-            endAddress = "San Jose State University";
-            gotInfoSuccessfully = true;
+            info = createDryRunInfo();
         }
         //         This will need Api Key to run
         else {
-            System.out.println("in here");
-            gotInfoSuccessfully = dataRequest.requestMapData(ob.getAddressFrom(), ob.getAddressTo(),
-                    ob.getTransport(), arrivalDateTime);
-
-            destName = dataRequest.getDestName();
-
-            originName = dataRequest.getOriginName();
-            durationSec = dataRequest.getDurationSec();
-            distanceInMile = dataRequest.getDistance();
-            rating = (double) dataRequest.getRating();
-            startAddress = dataRequest.getStartAddress();
-            endAddress = dataRequest.getEndAddress();
+            try {
+                info = dataSource.requestMapData(ob.getAddressFrom(), ob.getAddressTo(),
+                        ob.getTransport(), ob.getArrivalDateTime());
+            } catch (MapDataUnavailableException e) {
+                e.printStackTrace();
+                info = null;
+            }
         }
-        currentEvent = createEventType(gotInfoSuccessfully, startAddress,
-                endAddress, ob.getName(), originName, destName, arrivalDateTime,
-                ob.getTransport(), (int) durationSec, distanceInMile, importantScale, rating);
+        return createEventType(info, ob);
+    }
 
-        popUp = currentEvent.createPopUp();
-        createsButtonOfPopUp();
+    /**
+     * Creates the example trip used without API Key.
+     *
+     * @return information of the example trip
+     */
+    private RouteInfo createDryRunInfo() {
+        GooglePlaceInfo placeInfo = new GooglePlaceInfo("", "", new String[]{"NAN"},
+                "NAN", "NAN", 3.0f);
+        return new RouteInfo("Mountain View, CA", "San Jose State University", 20 * 60, 17, 3.0f,
+                "Mountain View, CA", "San Jose State University", placeInfo);
     }
 
     /**
      * Creates type of scheduled event depends on the info.
      *
-     * @param addressFrom     Address of destination
-     * @param addressTo       Address of starting
-     * @param eventName       name of event
-     * @param originName      name of origin place
-     * @param destName        name of destination
-     * @param arrivalDateTime arrival date and time
-     * @param transport       Mode of transportation
-     * @param duration        duration of travel
-     * @param importantScale  The importance level of an event to the user
-     * @param rating          rating of the business
+     * @param info information of the trip, null if it could not be requested
+     * @param ob   user input of the event
      * @return all the given user information
      */
-    private CalendarEvent createEventType(boolean gotInfoSuccessfully, String addressFrom, String addressTo, String eventName,
-                                          String originName, String destName, GregorianCalendar arrivalDateTime,
-                                          String transport, int duration, int distance, double importantScale, double rating) {
-
-        if (gotInfoSuccessfully) {
-            GooglePlaceInfo placeInfo = dataRequest.getGooglePlaceInfo();
-            return new EventWithInfo(placeInfo, addressFrom, addressTo, eventName,
-                    originName, destName, arrivalDateTime, transport, duration, distance, importantScale, rating);
+    private CalendarEvent createEventType(RouteInfo info, RawUserInput ob) {
+        if (info != null) {
+            EventWithInfo event = new EventWithInfo(info.getGooglePlaceInfo(), info.getStartAddress(),
+                    info.getEndAddress(), ob.getName(), info.getOriginName(), info.getDestName(),
+                    ob.getArrivalDateTime(), ob.getTransport(), (int) info.getDurationSec(), info.getDistance(),
+                    ob.getImportantScale(), info.getRating());
+            event.setModeDurations(info.getModeDurations());
+            return event;
         } else {
-            return new EventWithoutInfo(addressFrom, addressTo, eventName, arrivalDateTime, transport, importantScale);
+            return new EventWithoutInfo(ob.getAddressFrom(), ob.getAddressTo(), ob.getName(),
+                    ob.getArrivalDateTime(), ob.getTransport(), ob.getImportantScale());
         }
     }
 
     /**
      * Adjust the ready time from the user request.
      *
+     * @param event        the event being adjusted
+     * @param popUp        the pop up showing the event
      * @param changingTime adjusts the preparation time according to the user input
      */
-    public void adjustReadyTime(int changingTime) {
-        currentEvent.editReadyTime(changingTime);
-        String alarmStr = currentEvent.getEventInfo();
+    public void adjustReadyTime(CalendarEvent event, PopUpFrame popUp, int changingTime) {
+        event.editReadyTime(changingTime);
+        String alarmStr = event.getEventInfo();
         popUp.showPopUp(alarmStr);
     }
 
     /**
      * Creates buttons for the PopUpFrame.
+     *
+     * @param event the event shown in the pop up
+     * @param popUp the pop up of the event
      */
-    private void createsButtonOfPopUp() {
+    private void createsButtonOfPopUp(CalendarEvent event, PopUpFrame popUp) {
         popUp.addActionSaveButton(ActionEvent -> {
-            model.addEvent(currentEvent);
+            // the form only checked a guessed window, the estimate may reach further back
+            if (!controller.confirmConflicts(event)) {
+                return;
+            }
+            try {
+                model.addEvent(event);
+            } catch (EventNotStoredException e) {
+                JOptionPane.showMessageDialog(popUp, e.getMessage(), "The event was not saved",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             controller.resetUserFrame();
             popUp.setVisible(false);
             outputFrame.setVisible(true);
@@ -187,7 +223,7 @@ public class ReadyTimeCalc implements Runnable {
         popUp.addActionAdjustButton(ActionEvent -> {
             int adjustingTime = popUp.getSliderValue();
             if (adjustingTime != 0) {
-                adjustReadyTime(adjustingTime);
+                adjustReadyTime(event, popUp, adjustingTime);
             }
         });
     }
@@ -0,0 +1,123 @@
+import com.google.gson.Gson;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.GregorianCalendar;
+
+/**
+ * Class RecordingDataSource saves every trip answered by another data source to a corpus file, so the same trips
+ * can be served later by ReplayDataSource without network. Each line of the corpus is one json recording
+ * with the request, the trip information and how long the answer took. Answers from a cache behind this source
+ * are recorded too, with their short latency, so a replay is as fast as the recorded run.
+ */
+public class RecordingDataSource implements MapDataSource {
+    private MapDataSource dataSource;
+    private Writer writer;
+    private Gson gson;
+    private long recordCount = 0;
+
+    /**
+     * Constructor for the class, new recordings are added at the end of the corpus.
+     *
+     * @param dataSource the data source doing the real requests
+     * @param filePath   file path of the corpus
+     * @throws IOException when the corpus can not be opened
+     */
+    public RecordingDataSource(MapDataSource dataSource, String filePath) throws IOException {
+        this.dataSource = dataSource;
+        writer = new BufferedWriter(new FileWriter(filePath, true));
+        gson = new Gson();
+    }
+
+    /**
+     * Requests the information of a trip and records the answer.
+     *
+     * @param origin      Beginning destination
+     * @param destination Ending destination
+     * @param travelMode  Mode of transportation
+     * @param arrivalTime Time that user must be at event
+     * @return the information of the trip or null if the request failed
+     */
+    @Override
+    public RouteInfo requestMapData(String origin, String destination, String travelMode,
+                                    GregorianCalendar arrivalTime) {
+        long start = System.nanoTime();
+        RouteInfo info = dataSource.requestMapData(origin, destination, travelMode, arrivalTime);
+        long latencyMillis = (System.nanoTime() - start) / 1000000;
+        if (info != null) {
+            record(new Recording(origin, destination, travelMode, arrivalTime.getTimeInMillis(), latencyMillis,
+                    info));
+        }
+        return info;
+    }
+
+    /**
+     * Writes one recording as a line of the corpus.
+     *
+     * @param recording the recording
+     */
+    private synchronized void record(Recording recording) {
+        try {
+            writer.write(gson.toJson(recording));
+            writer.write("\n");
+            writer.flush();
+            recordCount++;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Accessor for recordCount.
+     *
+     * @return number of trips recorded
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Closes the corpus.
+     */
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * One line of the corpus.
+     */
+    static class Recording {
+        String origin;
+        String destination;
+        String travelMode;
+        long arrivalMillis;
+        long latencyMillis;
+        RouteInfo info;
+
+        /**
+         * Constructor for the class.
+         *
+         * @param origin        Beginning destination
+         * @param destination   Ending destination
+         * @param travelMode    Mode of transportation
+         * @param arrivalMillis time that user must be at event in epoch milliseconds
+         * @param latencyMillis how long the answer took
+         * @param info          the information of the trip
+         */
+        Recording(String origin, String destination, String travelMode, long arrivalMillis, long latencyMillis,
+                  RouteInfo info) {
+            this.origin = origin;
+            this.destination = destination;
+            this.travelMode = travelMode;
+            this.arrivalMillis = arrivalMillis;
+            this.latencyMillis = latencyMillis;
+            this.info = info;
+        }
+    }
+}
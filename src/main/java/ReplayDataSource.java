@@ -0,0 +1,164 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class ReplayDataSource answers trip requests from a corpus saved by RecordingDataSource instead of google.
+ * Trips are found by the same key as RouteCache, so a recorded trip answers any request with the same places,
+ * mode of transportation and hour of the week. The original latency of each answer can be reproduced: every
+ * latency recorded for a trip is kept and they are replayed in turn, so a trip first fetched from google and
+ * later answered by a cache is replayed with the same mix of slow and fast answers.
+ */
+public class ReplayDataSource implements MapDataSource {
+    private HashMap<String, RecordedTrip> recordings;
+    private boolean isReplayingLatency;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * Constructor for the class.
+     *
+     * @param filePath           file path of the corpus
+     * @param isReplayingLatency true to wait as long as the recorded answer took
+     * @throws IOException when the corpus can not be read
+     */
+    public ReplayDataSource(String filePath, boolean isReplayingLatency) throws IOException {
+        this.isReplayingLatency = isReplayingLatency;
+        recordings = new HashMap<>();
+        Gson gson = new Gson();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+                try {
+                    add(gson.fromJson(line, RecordingDataSource.Recording.class));
+                } catch (JsonParseException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a recording, a later recording of the same trip replaces the information of the earlier one
+     * and adds its latency to theirs.
+     *
+     * @param recording the recording
+     */
+    private void add(RecordingDataSource.Recording recording) {
+        GregorianCalendar arrivalTime = new GregorianCalendar();
+        arrivalTime.setTimeInMillis(recording.arrivalMillis);
+        RouteInfo info = recording.info;
+        // rebuild through the constructor so the replayed trip is as immutable as a real one
+        RouteInfo copy = new RouteInfo(info.getOriginName(), info.getDestName(), info.getDurationSec(),
+                info.getDistance(), info.getRating(), info.getStartAddress(), info.getEndAddress(),
+                info.getGooglePlaceInfo(), info.getModeDurations());
+        String key = RouteCache.createKey(recording.origin, recording.destination, recording.travelMode,
+                arrivalTime);
+        RecordedTrip earlier = recordings.get(key);
+        long[] latencies;
+        if (earlier == null) {
+            latencies = new long[]{recording.latencyMillis};
+        } else {
+            latencies = Arrays.copyOf(earlier.latencyMillis, earlier.latencyMillis.length + 1);
+            latencies[latencies.length - 1] = recording.latencyMillis;
+        }
+        recordings.put(key, new RecordedTrip(copy, latencies));
+    }
+
+    /**
+     * Answers a trip request from the corpus.
+     *
+     * @param origin      Beginning destination
+     * @param destination Ending destination
+     * @param travelMode  Mode of transportation
+     * @param arrivalTime Time that user must be at event
+     * @return the recorded information of the trip or null if the trip was never recorded
+     */
+    @Override
+    public RouteInfo requestMapData(String origin, String destination, String travelMode,
+                                    GregorianCalendar arrivalTime) {
+        RecordedTrip trip = recordings.get(RouteCache.createKey(origin, destination, travelMode, arrivalTime));
+        countRequest(trip != null);
+        if (trip == null) {
+            return null;
+        }
+        long latencyMillis = isReplayingLatency ? trip.nextLatency() : 0;
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return trip.info;
+    }
+
+    private synchronized void countRequest(boolean isHit) {
+        if (isHit) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+    }
+
+    /**
+     * Accessor for the number of recorded trips.
+     *
+     * @return number of trips
+     */
+    public int size() {
+        return recordings.size();
+    }
+
+    /**
+     * Accessor for hitCount.
+     *
+     * @return number of requests answered from the corpus
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Accessor for missCount.
+     *
+     * @return number of requests for trips that were never recorded
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * A recorded trip and how long each of its answers took.
+     */
+    private static class RecordedTrip {
+        private final RouteInfo info;
+        private final long[] latencyMillis;
+        private final AtomicInteger nextLatency = new AtomicInteger();
+
+        RecordedTrip(RouteInfo info, long[] latencyMillis) {
+            this.info = info;
+            this.latencyMillis = latencyMillis;
+        }
+
+        /**
+         * Gets the latencies in the order they were recorded, starting again after the last one.
+         *
+         * @return latency in milliseconds
+         */
+        long nextLatency() {
+            return latencyMillis[Math.floorMod(nextLatency.getAndIncrement(), latencyMillis.length)];
+        }
+    }
+}
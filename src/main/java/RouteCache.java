@@ -0,0 +1,193 @@
+import com.google.maps.model.DirectionsResult;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class RouteCache keeps recent Directions results in memory so repeated trips skip the Google API call.
+ * The travel time of every mode of transportation can be kept with a route, so comparing modes is skipped too.
+ * Entries are evicted in least recently used order once the cache is full and expire after a time to live.
+ */
+public class RouteCache {
+    public final static int DEFAULT_CAPACITY = 256;
+    public final static long DEFAULT_TTL_MIN = 30;
+    private final static int HOUR_PER_DAY = 24;
+    private final static long MILLIS_PER_MIN = 60 * 1000;
+    private LinkedHashMap<String, CachedRoute> routes;
+    private int capacity;
+    private long ttlMillis;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * Constructor for the class with default size and time to live.
+     */
+    public RouteCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL_MIN);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param capacity maximum number of routes kept
+     * @param ttlMin   minutes a route stays valid
+     */
+    public RouteCache(int capacity, long ttlMin) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.ttlMillis = ttlMin * MILLIS_PER_MIN;
+        routes = new LinkedHashMap<String, CachedRoute>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRoute> eldest) {
+                return size() > RouteCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Creates the key of a trip. Addresses are normalized and the arrival time is bucketed by hour of week,
+     * so the same commute at the same time of week maps to the same route.
+     *
+     * @param origin      starting address
+     * @param destination ending address
+     * @param travelMode  mode of transportation
+     * @param arrivalTime time the user must be at the event
+     * @return key of the trip
+     */
+    public static String createKey(String origin, String destination, String travelMode,
+                                   GregorianCalendar arrivalTime) {
+        int hourOfWeek = (arrivalTime.get(Calendar.DAY_OF_WEEK) - 1) * HOUR_PER_DAY
+                + arrivalTime.get(Calendar.HOUR_OF_DAY);
+        return normalize(origin) + "|" + normalize(destination) + "|"
+                + travelMode.toUpperCase() + "|" + hourOfWeek;
+    }
+
+    /**
+     * Normalizes an address so different spacing and letter cases give the same key.
+     * Place IDs are case sensitive, so a place_id: query is only trimmed.
+     *
+     * @param address raw address or place_id:ID
+     * @return normalized address
+     */
+    public static String normalize(String address) {
+        String trimmed = address.trim();
+        if (trimmed.startsWith(AddressIndex.PLACE_ID_PREFIX)) {
+            return trimmed;
+        }
+        return trimmed.replaceAll("\\s+", " ").toLowerCase();
+    }
+
+    /**
+     * Gets a route from the cache.
+     *
+     * @param key key of the trip
+     * @return the cached route or null if it is missing or expired
+     */
+    public synchronized DirectionsResult get(String key) {
+        CachedRoute route = routes.get(key);
+        if (route == null || route.isExpired(System.currentTimeMillis())) {
+            if (route != null) {
+                routes.remove(key);
+            }
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return route.result;
+    }
+
+    /**
+     * Adds a route to the cache.
+     *
+     * @param key    key of the trip
+     * @param result route returned by google
+     */
+    public synchronized void put(String key, DirectionsResult result) {
+        routes.put(key, new CachedRoute(result, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Keeps the travel time of every mode of transportation with a cached route.
+     *
+     * @param key           key of the trip
+     * @param modeDurations travel time in seconds of each mode of transportation
+     */
+    public synchronized void putModeDurations(String key, Map<String, Long> modeDurations) {
+        CachedRoute route = routes.get(key);
+        if (route != null && !route.isExpired(System.currentTimeMillis())) {
+            route.modeDurations = Collections.unmodifiableMap(new HashMap<>(modeDurations));
+        }
+    }
+
+    /**
+     * Gets the travel time of every mode of transportation kept with a route.
+     *
+     * @param key key of the trip
+     * @return travel time in seconds of each mode or null if the route or the times are not cached
+     */
+    public synchronized Map<String, Long> getModeDurations(String key) {
+        CachedRoute route = routes.get(key);
+        if (route == null || route.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return route.modeDurations;
+    }
+
+    /**
+     * Removes all routes.
+     */
+    public synchronized void clear() {
+        routes.clear();
+    }
+
+    /**
+     * Accessor for the number of cached routes.
+     *
+     * @return number of routes
+     */
+    public synchronized int size() {
+        return routes.size();
+    }
+
+    /**
+     * Accessor for hitCount.
+     *
+     * @return number of lookups served from the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Accessor for missCount.
+     *
+     * @return number of lookups that needed the google API
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * A route with the time it stops being valid.
+     */
+    private static class CachedRoute {
+        private DirectionsResult result;
+        private long expireAt;
+        private Map<String, Long> modeDurations;
+
+        private CachedRoute(DirectionsResult result, long expireAt) {
+            this.result = result;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+}
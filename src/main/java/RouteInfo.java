@@ -0,0 +1,145 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class RouteInfo holds the result of one request to google. It is immutable so it can be handed between threads.
+ * Names and addresses are pooled in StringPool, the same places come back in many results.
+ */
+public final class RouteInfo {
+    private final String originName;
+    private final String destName;
+    private final long durationSec;
+    private final int distanceInMile;
+    private final float rating;
+    private final String startAddress;
+    private final String endAddress;
+    private final GooglePlaceInfo placeInfo;
+    private final Map<String, Long> modeDurations;
+
+    /**
+     * Constructor for the class.
+     *
+     * @param originName     name of beginning destination
+     * @param destName       name of ending destination
+     * @param durationSec    travel time in seconds
+     * @param distanceInMile travel distance in miles
+     * @param rating         rating of the ending destination
+     * @param startAddress   starting address found by google
+     * @param endAddress     ending address found by google
+     * @param placeInfo      extra information about the places
+     */
+    public RouteInfo(String originName, String destName, long durationSec, int distanceInMile, float rating,
+                     String startAddress, String endAddress, GooglePlaceInfo placeInfo) {
+        this(originName, destName, durationSec, distanceInMile, rating, startAddress, endAddress, placeInfo,
+                Collections.emptyMap());
+    }
+
+    /**
+     * Constructor for the class with travel durations of other modes of transportation.
+     *
+     * @param originName     name of beginning destination
+     * @param destName       name of ending destination
+     * @param durationSec    travel time in seconds
+     * @param distanceInMile travel distance in miles
+     * @param rating         rating of the ending destination
+     * @param startAddress   starting address found by google
+     * @param endAddress     ending address found by google
+     * @param placeInfo      extra information about the places
+     * @param modeDurations  travel time in seconds of each mode of transportation
+     */
+    public RouteInfo(String originName, String destName, long durationSec, int distanceInMile, float rating,
+                     String startAddress, String endAddress, GooglePlaceInfo placeInfo,
+                     Map<String, Long> modeDurations) {
+        this.originName = StringPool.intern(originName);
+        this.destName = StringPool.intern(destName);
+        this.durationSec = durationSec;
+        this.distanceInMile = distanceInMile;
+        this.rating = rating;
+        this.startAddress = StringPool.intern(startAddress);
+        this.endAddress = StringPool.intern(endAddress);
+        this.placeInfo = placeInfo;
+        this.modeDurations = Collections.unmodifiableMap(new HashMap<>(modeDurations));
+    }
+
+    /**
+     * Accessor for originName.
+     *
+     * @return name of beginning destination
+     */
+    public String getOriginName() {
+        return originName;
+    }
+
+    /**
+     * Accessor for destName.
+     *
+     * @return the name of ending destination
+     */
+    public String getDestName() {
+        return destName;
+    }
+
+    /**
+     * Accessor for durationSec.
+     *
+     * @return how long the travel time is to get from starting destination to ending destination
+     */
+    public long getDurationSec() {
+        return durationSec;
+    }
+
+    /**
+     * Accessor for distance in mile.
+     *
+     * @return the distance from beginning destination to ending destination
+     */
+    public int getDistance() {
+        return distanceInMile;
+    }
+
+    /**
+     * Accessor for rating.
+     *
+     * @return the rate of the destination given by google
+     */
+    public float getRating() {
+        return rating;
+    }
+
+    /**
+     * Accessor for startAddress.
+     *
+     * @return the starting address
+     */
+    public String getStartAddress() {
+        return startAddress;
+    }
+
+    /**
+     * Accessor for endAddress.
+     *
+     * @return the ending address
+     */
+    public String getEndAddress() {
+        return endAddress;
+    }
+
+    /**
+     * Accessor for placeInfo.
+     *
+     * @return extra information about the places
+     */
+    public GooglePlaceInfo getGooglePlaceInfo() {
+        return placeInfo;
+    }
+
+    /**
+     * Accessor for modeDurations.
+     *
+     * @return travel time in seconds of each mode of transportation, empty if not requested
+     */
+    public Map<String, Long> getModeDurations() {
+        return modeDurations;
+    }
+}
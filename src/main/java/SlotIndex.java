@@ -0,0 +1,250 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Class SlotIndex keeps the arrival times of the events of a MappedEventStore with the slot of each event,
+ * sorted by arrival time. The entries are kept in chunks of primitive arrays, so an index of a million events
+ * takes a few megabytes of the heap. A chunk is found by binary search over the last key of every chunk, and
+ * an insert only moves the entries of one chunk, a full chunk is split in two.
+ */
+public class SlotIndex {
+    public final static int NONE = -1;
+    final static int CHUNK_ENTRIES = 512;
+    private ArrayList<Chunk> chunks;
+    private int size = 0;
+
+    /**
+     * Constructor for the class.
+     */
+    public SlotIndex() {
+        chunks = new ArrayList<>();
+    }
+
+    /**
+     * Gets the slot of an arrival time.
+     *
+     * @param key arrival time in epoch milliseconds
+     * @return the slot or NONE
+     */
+    public int get(long key) {
+        int chunkIndex = chunkFor(key);
+        if (chunkIndex < 0) {
+            return NONE;
+        }
+        Chunk chunk = chunks.get(chunkIndex);
+        int position = chunk.search(key);
+        return position < 0 ? NONE : chunk.slots[position];
+    }
+
+    /**
+     * Adds an arrival time, or gives it a new slot.
+     *
+     * @param key  arrival time in epoch milliseconds
+     * @param slot slot of the event
+     * @return the slot the arrival time had before or NONE
+     */
+    public int put(long key, int slot) {
+        if (chunks.isEmpty()) {
+            chunks.add(new Chunk());
+        }
+        int chunkIndex = chunkFor(key);
+        Chunk chunk = chunks.get(chunkIndex);
+        int position = chunk.search(key);
+        if (position >= 0) {
+            int oldSlot = chunk.slots[position];
+            chunk.slots[position] = slot;
+            return oldSlot;
+        }
+        position = -position - 1;
+        if (chunk.size == CHUNK_ENTRIES) {
+            Chunk upper = chunk.split();
+            chunks.add(chunkIndex + 1, upper);
+            if (position > chunk.size) {
+                position -= chunk.size;
+                chunk = upper;
+            }
+        }
+        chunk.insert(position, key, slot);
+        size++;
+        return NONE;
+    }
+
+    /**
+     * Removes an arrival time.
+     *
+     * @param key arrival time in epoch milliseconds
+     * @return the slot it had or NONE
+     */
+    public int remove(long key) {
+        int chunkIndex = chunkFor(key);
+        if (chunkIndex < 0) {
+            return NONE;
+        }
+        Chunk chunk = chunks.get(chunkIndex);
+        int position = chunk.search(key);
+        if (position < 0) {
+            return NONE;
+        }
+        int slot = chunk.slots[position];
+        chunk.delete(position);
+        if (chunk.size == 0) {
+            chunks.remove(chunkIndex);
+        }
+        size--;
+        return slot;
+    }
+
+    /**
+     * Removes all arrival times.
+     */
+    public void clear() {
+        chunks.clear();
+        size = 0;
+    }
+
+    /**
+     * Gets the number of arrival times.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets all arrival times in sort order.
+     *
+     * @return the arrival times
+     */
+    public long[] keys() {
+        long[] keys = new long[size];
+        int at = 0;
+        for (Chunk chunk : chunks) {
+            System.arraycopy(chunk.keys, 0, keys, at, chunk.size);
+            at += chunk.size;
+        }
+        return keys;
+    }
+
+    /**
+     * Gets the slots of the arrival times in a range, in sort order.
+     *
+     * @param fromKey first arrival time included
+     * @param toKey   first arrival time not included
+     * @param limit   most slots returned
+     * @return the slots
+     */
+    public int[] slotsBetween(long fromKey, long toKey, int limit) {
+        int chunkIndex = chunkFor(fromKey);
+        if (chunkIndex < 0 || fromKey >= toKey || limit <= 0) {
+            return new int[0];
+        }
+        int[] slots = new int[Math.min(limit, CHUNK_ENTRIES)];
+        int count = 0;
+        int position = chunks.get(chunkIndex).lowerBound(fromKey);
+        for (; chunkIndex < chunks.size(); chunkIndex++, position = 0) {
+            Chunk chunk = chunks.get(chunkIndex);
+            for (; position < chunk.size; position++) {
+                if (chunk.keys[position] >= toKey || count == limit) {
+                    return Arrays.copyOf(slots, count);
+                }
+                if (count == slots.length) {
+                    slots = Arrays.copyOf(slots, (int) Math.min(limit, 2L * slots.length));
+                }
+                slots[count++] = chunk.slots[position];
+            }
+        }
+        return Arrays.copyOf(slots, count);
+    }
+
+    /**
+     * Writes every entry as arrival time and slot, in sort order.
+     *
+     * @param out where the entries are written
+     * @throws IOException when the entries can not be written
+     */
+    public void writeEntries(DataOutput out) throws IOException {
+        for (Chunk chunk : chunks) {
+            for (int position = 0; position < chunk.size; position++) {
+                out.writeLong(chunk.keys[position]);
+                out.writeInt(chunk.slots[position]);
+            }
+        }
+    }
+
+    /**
+     * Finds the chunk holding an arrival time, or where it would be added.
+     *
+     * @param key arrival time in epoch milliseconds
+     * @return index of the first chunk ending at or after the key, the last chunk if none does, -1 if empty
+     */
+    private int chunkFor(long key) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        if (high < 0) {
+            return -1;
+        }
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (chunks.get(middle).lastKey() < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sorted entries of a part of the index.
+     */
+    private static class Chunk {
+        private final long[] keys = new long[CHUNK_ENTRIES];
+        private final int[] slots = new int[CHUNK_ENTRIES];
+        private int size = 0;
+
+        long lastKey() {
+            return keys[size - 1];
+        }
+
+        int search(long key) {
+            return Arrays.binarySearch(keys, 0, size, key);
+        }
+
+        int lowerBound(long key) {
+            int position = search(key);
+            return position < 0 ? -position - 1 : position;
+        }
+
+        void insert(int position, long key, int slot) {
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            System.arraycopy(slots, position, slots, position + 1, size - position);
+            keys[position] = key;
+            slots[position] = slot;
+            size++;
+        }
+
+        void delete(int position) {
+            System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+            System.arraycopy(slots, position + 1, slots, position, size - position - 1);
+            size--;
+        }
+
+        /**
+         * Moves the upper half of a full chunk to a new chunk.
+         *
+         * @return the new chunk
+         */
+        Chunk split() {
+            Chunk upper = new Chunk();
+            int half = size / 2;
+            upper.size = size - half;
+            System.arraycopy(keys, half, upper.keys, 0, upper.size);
+            System.arraycopy(slots, half, upper.slots, 0, upper.size);
+            size = half;
+            return upper;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Class StringPool keeps one shared instance of equal strings, so the addresses, names and place ids repeated
+ * by almost every event are in the heap once instead of once per event. A string read from a file or from
+ * google is swapped for the pooled one. The pool only holds weak references, a string no longer used by any
+ * event is dropped by the garbage collector. The pool is split in stripes so threads rarely wait for each other.
+ */
+public final class StringPool {
+    private final static int STRIPE_BITS = 4;
+    private final static List<Map<String, WeakReference<String>>> STRIPES = createStripes();
+
+    private StringPool() {
+    }
+
+    private static List<Map<String, WeakReference<String>>> createStripes() {
+        List<Map<String, WeakReference<String>>> stripes = new ArrayList<>(1 << STRIPE_BITS);
+        for (int i = 0; i < 1 << STRIPE_BITS; i++) {
+            stripes.add(new WeakHashMap<>());
+        }
+        return stripes;
+    }
+
+    /**
+     * Gets the pooled instance of a string, the string becomes the pooled instance if there is none.
+     *
+     * @param str the string
+     * @return a string equal to str, null if str is null
+     */
+    public static String intern(String str) {
+        if (str == null) {
+            return null;
+        }
+        int hash = str.hashCode();
+        Map<String, WeakReference<String>> stripe = STRIPES.get((hash ^ (hash >>> 16)) & (STRIPES.size() - 1));
+        synchronized (stripe) {
+            WeakReference<String> reference = stripe.get(str);
+            String pooled = reference == null ? null : reference.get();
+            if (pooled == null) {
+                stripe.put(str, new WeakReference<>(str));
+                return str;
+            }
+            return pooled;
+        }
+    }
+
+    /**
+     * Copies an array of strings with the pooled instance of every string.
+     *
+     * @param strs the strings
+     * @return a new array of pooled strings, null if strs is null
+     */
+    public static String[] internAll(String[] strs) {
+        if (strs == null) {
+            return null;
+        }
+        String[] pooled = new String[strs.length];
+        for (int i = 0; i < strs.length; i++) {
+            pooled[i] = intern(strs[i]);
+        }
+        return pooled;
+    }
+}
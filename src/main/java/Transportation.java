@@ -5,6 +5,7 @@ import java.io.Serializable;
  * from starting destination to ending destination including the break times.
  */
 public abstract class Transportation implements Serializable, Cloneable {
+    private static final long serialVersionUID = 3931082333259614172L;
     final static int BREAK_TIME_SEC = 30 * 60;
     protected int durationInSec;
     protected int travelInSec;
@@ -31,6 +32,16 @@ public abstract class Transportation implements Serializable, Cloneable {
         travelInSec = calculateBreakTime() + durationInSec;
     }
 
+    /**
+     * Replaces the travel time with a newer estimate and recalculates the break times.
+     *
+     * @param duration new travel time in seconds
+     */
+    void setDuration(int duration) {
+        durationInSec = duration;
+        setTotalMinTravel();
+    }
+
     /**
      * Gets travel time in minute
      * @return  duration in min
@@ -0,0 +1,201 @@
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class TravelTimeRefresher asks google again for the travel time of saved events while they come closer,
+ * because traffic at the time of leaving can be very different from the estimate made when the event was created.
+ * Events far in the future are checked rarely and events about to start often. Each tick only sends a limited
+ * number of requests, the most urgent events first, so thousands of events do not use up the API quota.
+ * The alarm only moves when the travel time changed by at least a threshold.
+ * The refresh asks google for the time of leaving with the traffic at that time, past the route cache, and
+ * only looks a week ahead, where traffic can still be predicted.
+ */
+public class TravelTimeRefresher {
+    public final static int DEFAULT_TICK_SEC = 60;
+    public final static int DEFAULT_BUDGET_PER_TICK = 20;
+    public final static int DEFAULT_THRESHOLD_MIN = 5;
+    private final static long MILLIS_PER_MIN = 60 * 1000;
+    private final static long MILLIS_PER_HOUR = 60 * MILLIS_PER_MIN;
+    private final static long LOOKAHEAD_MILLIS = 7 * 24 * MILLIS_PER_HOUR;
+    // events closer than each horizon are checked at the interval with the same index, the rest at the last one
+    private final static long[] HORIZON_MILLIS = {MILLIS_PER_HOUR, 6 * MILLIS_PER_HOUR, 48 * MILLIS_PER_HOUR};
+    private final static long[] INTERVAL_MILLIS = {10 * MILLIS_PER_MIN, 30 * MILLIS_PER_MIN,
+            2 * MILLIS_PER_HOUR, 12 * MILLIS_PER_HOUR};
+    private EventModel model;
+    private TravelTimeSource dataSource;
+    private int budgetPerTick;
+    private int thresholdMin;
+    private HashMap<Long, Long> lastRefreshMillis;
+    private ScheduledExecutorService scheduler;
+    private long requestCount = 0;
+    private long movedCount = 0;
+
+    /**
+     * Constructor for the class with default limits.
+     *
+     * @param model      the model holding the events
+     * @param dataSource source of travel times with traffic
+     */
+    public TravelTimeRefresher(EventModel model, TravelTimeSource dataSource) {
+        this(model, dataSource, DEFAULT_BUDGET_PER_TICK, DEFAULT_THRESHOLD_MIN);
+    }
+
+    /**
+     * Constructor for the class.
+     *
+     * @param model         the model holding the events
+     * @param dataSource    source of travel times with traffic
+     * @param budgetPerTick most requests sent in one tick
+     * @param thresholdMin  smallest change of travel time in minutes that moves an alarm
+     */
+    public TravelTimeRefresher(EventModel model, TravelTimeSource dataSource, int budgetPerTick, int thresholdMin) {
+        this.model = model;
+        this.dataSource = dataSource;
+        this.budgetPerTick = budgetPerTick;
+        this.thresholdMin = thresholdMin;
+        lastRefreshMillis = new HashMap<>();
+    }
+
+    /**
+     * Starts refreshing in the background.
+     *
+     * @param tickSec seconds between ticks
+     */
+    public void start(int tickSec) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TravelTimeRefresher");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, tickSec, tickSec, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops refreshing.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs one tick: finds the events due for a refresh and asks for the travel time of the most urgent ones.
+     *
+     * @param nowMillis current time in epoch milliseconds
+     * @return number of requests sent
+     */
+    int refresh(long nowMillis) {
+        ArrayList<EventWithInfo> dueEvents = new ArrayList<>();
+        HashSet<Long> upcoming = new HashSet<>();
+        // events come sorted by arrival time, so the most urgent are first
+        for (CalendarEvent event : model.eventsBetween(nowMillis + 1, nowMillis + LOOKAHEAD_MILLIS,
+                Integer.MAX_VALUE)) {
+            long arrivalMillis = event.getArrivalDateTime().getTimeInMillis();
+            if (!(event instanceof EventWithInfo)) {
+                continue;
+            }
+            upcoming.add(arrivalMillis);
+            Long lastMillis = lastRefreshMillis.get(arrivalMillis);
+            if (lastMillis == null || nowMillis - lastMillis >= getInterval(arrivalMillis - nowMillis)) {
+                dueEvents.add((EventWithInfo) event);
+            }
+        }
+        lastRefreshMillis.keySet().retainAll(upcoming);
+
+        int sent = 0;
+        for (EventWithInfo event : dueEvents) {
+            if (sent >= budgetPerTick) {
+                break;
+            }
+            long arrivalMillis = event.getArrivalDateTime().getTimeInMillis();
+            lastRefreshMillis.put(arrivalMillis, nowMillis);
+            sent++;
+            // google only predicts traffic for a departure time that is not in the past
+            GregorianCalendar departure = new GregorianCalendar();
+            departure.setTimeInMillis(Math.max(nowMillis, arrivalMillis - event.getTravelTime() * MILLIS_PER_MIN));
+            long durationSec;
+            try {
+                durationSec = dataSource.requestTravelTime(event.addressFrom, event.addressTo,
+                        event.transport.toString(), departure);
+            } catch (MapDataUnavailableException e) {
+                // the rest waits for the next tick instead of piling up on an unreachable service
+                e.printStackTrace();
+                break;
+            }
+            if (durationSec >= 0) {
+                applyDuration(event, (int) durationSec);
+            }
+        }
+        countRequests(sent);
+        return sent;
+    }
+
+    /**
+     * Gives the new travel time to the model on the event dispatch thread, where the frames read the model.
+     *
+     * @param event       the event refreshed
+     * @param durationSec new travel time in seconds
+     */
+    private void applyDuration(EventWithInfo event, int durationSec) {
+        SwingUtilities.invokeLater(() -> {
+            if (model.updateTravelDuration(event, durationSec, thresholdMin)) {
+                countMoved();
+            }
+        });
+    }
+
+    /**
+     * Gets how long to wait between refreshes of an event.
+     *
+     * @param millisToArrival time left until the event
+     * @return interval in milliseconds
+     */
+    static long getInterval(long millisToArrival) {
+        for (int i = 0; i < HORIZON_MILLIS.length; i++) {
+            if (millisToArrival < HORIZON_MILLIS[i]) {
+                return INTERVAL_MILLIS[i];
+            }
+        }
+        return INTERVAL_MILLIS[INTERVAL_MILLIS.length - 1];
+    }
+
+    private synchronized void countRequests(int sent) {
+        requestCount += sent;
+    }
+
+    private synchronized void countMoved() {
+        movedCount++;
+    }
+
+    /**
+     * Accessor for requestCount.
+     *
+     * @return number of refresh requests sent
+     */
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Accessor for movedCount.
+     *
+     * @return number of alarms moved
+     */
+    public synchronized long getMovedCount() {
+        return movedCount;
+    }
+}
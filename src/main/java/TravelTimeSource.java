@@ -0,0 +1,19 @@
+import java.util.GregorianCalendar;
+
+/**
+ * Interface of anything that can tell how long a trip takes when leaving at a time, with the traffic expected
+ * then. Unlike MapDataSource the answer is never taken from a cache, it is meant to change with the traffic.
+ */
+public interface TravelTimeSource {
+    /**
+     * Requests the travel time of a trip.
+     *
+     * @param origin        Beginning destination
+     * @param destination   Ending destination
+     * @param travelMode    Mode of transportation
+     * @param departureTime Time the user leaves, not before now
+     * @return travel time in seconds or -1 if no trip was found
+     * @throws MapDataUnavailableException when a source calling google could not reach it
+     */
+    long requestTravelTime(String origin, String destination, String travelMode, GregorianCalendar departureTime);
+}
@@ -1,4 +1,7 @@
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
 import javax.swing.text.MaskFormatter;
 import java.awt.*;
 import java.awt.event.ActionListener;
@@ -11,11 +14,13 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.List;
 
 /**
  * Class UserInputFrame provides the window where the user inputs information of the event they are scheduling.
  */
 public class UserInputFrame extends JFrame {
+    private final static int PREFETCH_DELAY_MS = 700;
     private JPanel panel;
     private ArrayList<Listener> listeners;
     private Box textFieldBox;
@@ -36,6 +41,8 @@ public class UserInputFrame extends JFrame {
     private JRadioButton transitJB;
     private Controller controller;
     private GregorianCalendar eventDate;
+    private ButtonGroup transportGroup;
+    private Timer prefetchTimer;
 
     /**
      * Constructor for the class.
@@ -49,6 +56,7 @@ public class UserInputFrame extends JFrame {
         setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
         listeners = new ArrayList<>();
         createPanel();
+        createPrefetchTimer();
         addCloseWindowOption();
         add(panel, BorderLayout.CENTER);
         setVisible(true);
@@ -89,11 +97,77 @@ public class UserInputFrame extends JFrame {
      *
      * @param object changing object
      */
-    private void notifyListener(RawUserInput object) {
+    private void notifyListener(Object object) {
         for (Listener l : listeners) {
             l.update(object);
         }
     }
+
+    /**
+     * Creates a timer that asks listeners to look up the trip once both addresses, the date, the time and the
+     * transport have been filled and left alone for a short time, so the lookup is done before the user submits.
+     */
+    private void createPrefetchTimer() {
+        prefetchTimer = new Timer(PREFETCH_DELAY_MS, ActionEvent -> maybePrefetch());
+        prefetchTimer.setRepeats(false);
+        DocumentListener restartListener = new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                prefetchTimer.restart();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                prefetchTimer.restart();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                prefetchTimer.restart();
+            }
+        };
+        for (JTextComponent field : new JTextComponent[]{addressFrom, addressTo, date, time}) {
+            field.getDocument().addDocumentListener(restartListener);
+        }
+        for (JRadioButton button : new JRadioButton[]{driveJB, bikeJB, walkJB, transitJB}) {
+            button.addActionListener(ActionEvent -> prefetchTimer.restart());
+        }
+    }
+
+    /**
+     * Notifies listeners with the form once it is complete: both addresses, a valid date and time in the
+     * future and a chosen transport. The time decides which trip is looked up, so no guess is sent.
+     */
+    private void maybePrefetch() {
+        GregorianCalendar arrivalDateTime = readArrivalDateTime();
+        if (arrivalDateTime == null || transportGroup.getSelection() == null) {
+            return;
+        }
+        RawUserInput input = new RawUserInput(addressFrom.getText().trim(), addressTo.getText().trim(),
+                eventName.getText(), arrivalDateTime, transportPick(), importantScale.getValue());
+        if (PrefetchRequest.isComplete(input, System.currentTimeMillis())) {
+            notifyListener(new PrefetchRequest(input));
+        }
+    }
+
+    /**
+     * Reads the date and time fields without warning the user.
+     *
+     * @return the date and time or null if they are not complete or not a real date
+     */
+    private GregorianCalendar readArrivalDateTime() {
+        try {
+            String[] dateArr = date.getText().split("/");
+            String[] timeArr = time.getText().split(":");
+            GregorianCalendar dateTime = new GregorianCalendar(Integer.parseInt(dateArr[2]),
+                    Integer.parseInt(dateArr[0]) - 1, Integer.parseInt(dateArr[1]), Integer.parseInt(timeArr[0]),
+                    Integer.parseInt(timeArr[1]));
+            // a month 13 or a time 25:00 is an error instead of rolling over to another date
+            dateTime.setLenient(false);
+            dateTime.getTimeInMillis();
+            return dateTime;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
     /**
      * Creates "Add" and "Show List" buttons.
      */
@@ -172,17 +246,17 @@ public class UserInputFrame extends JFrame {
      * Creates the checkboxes for the user.
      */
     private void createCheckBox() {
-        ButtonGroup group = new ButtonGroup();
+        transportGroup = new ButtonGroup();
         radioButtonBox = Box.createVerticalBox();
         driveJB = new JRadioButton("Driving", true);
         bikeJB = new JRadioButton("Biking");
         walkJB = new JRadioButton("Walking");
         transitJB = new JRadioButton("Transit");
 
-        group.add(bikeJB);
-        group.add(driveJB);
-        group.add(walkJB);
-        group.add(transitJB);
+        transportGroup.add(bikeJB);
+        transportGroup.add(driveJB);
+        transportGroup.add(walkJB);
+        transportGroup.add(transitJB);
 
         radioButtonBox.add(driveJB);
         radioButtonBox.add(bikeJB);
@@ -264,6 +338,9 @@ public class UserInputFrame extends JFrame {
                 popUpWarningMessage("The time is already occupied. Please try different time");
                 return false;
             }
+            if (!confirmConflicts(controller.findConflicts(eventDate))) {
+                return false;
+            }
         } else {
             throw new NumberFormatException("Invalid input");
         }
@@ -289,6 +366,26 @@ public class UserInputFrame extends JFrame {
         }
     }
 
+    /**
+     * Warns the user about saved events that overlap the time just before the new event.
+     *
+     * @param conflicts the overlapping events
+     * @return true if there is no overlap or the user wants to add the event anyway
+     */
+    public boolean confirmConflicts(List<CalendarEvent> conflicts) {
+        if (conflicts.isEmpty()) {
+            return true;
+        }
+        StringBuilder message = new StringBuilder("You are busy with these events while getting ready:\n");
+        for (CalendarEvent conflict : conflicts) {
+            message.append(conflict.eventName).append(" at ").append(conflict.getArrivalTimeString()).append("\n");
+        }
+        message.append("Add the event anyway?");
+        JDialog.setDefaultLookAndFeelDecorated(true);
+        return JOptionPane.showConfirmDialog(null, message.toString(), "Warning Message",
+                JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
+    }
+
     /**
      * Notifies the user if the date or time is invalid.
      */
@@ -337,6 +434,16 @@ public class UserInputFrame extends JFrame {
         showButton.addActionListener(e);
     }
 
+    /**
+     * Enables or disables adding events, they are not checked against saved events before those are restored.
+     *
+     * @param isEnabled true to let the user add events
+     */
+    public void setAddEnabled(boolean isEnabled) {
+        addButton.setEnabled(isEnabled);
+        addButton.setToolTipText(isEnabled ? null : "Loading saved events");
+    }
+
 
 
     /**
@@ -0,0 +1,53 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for AddressIndex class
+ */
+public class AddressIndexTest {
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("testAddressIndex", ".se");
+        file.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void testAliasesAreSavedInOneWrite() {
+        AddressIndex index = new AddressIndex(file.getPath());
+        index.learn("Mountain View, CA", "ChIJabc");
+        index.learn("mountain view ca", "ChIJabc");
+        index.learn("San Jose", "ChIJdef");
+        assertEquals(false, file.exists());
+
+        index.saveIfChanged();
+        AddressIndex restored = new AddressIndex(file.getPath());
+        assertEquals(2, restored.size());
+        assertEquals("ChIJabc", restored.getPlaceId("MOUNTAIN VIEW CA"));
+        assertEquals(AddressIndex.PLACE_ID_PREFIX + "ChIJdef", restored.toQuery("San Jose"));
+    }
+
+    @Test
+    public void testExpiredAliasIsGeocodedAgain() {
+        AddressIndex index = new AddressIndex(file.getPath(), 0);
+        index.learn("San Jose", "ChIJdef");
+        index.saveIfChanged();
+
+        assertEquals(true, index.getPlaceId("San Jose") == null);
+        assertEquals("San Jose", index.toQuery("San Jose"));
+        assertEquals(0, new AddressIndex(file.getPath()).size());
+    }
+}
@@ -0,0 +1,115 @@
+import com.google.maps.PendingResult;
+import com.google.maps.errors.OverQueryLimitException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test for ApiThrottle class
+ */
+public class ApiThrottleTest {
+    @org.junit.Test
+    public void testRequestThrowingDoesNotLeakPlaces() throws Exception {
+        ApiThrottle throttle = new ApiThrottle(1000, 4, 2, 1);
+        for (int i = 0; i < 10; i++) {
+            CompletableFuture<String> result = throttle.submit(() -> {
+                throw new IllegalArgumentException("bad mode");
+            });
+            assertFailsWith(IllegalArgumentException.class, result);
+        }
+
+        assertEquals("ok", throttle.submit(() -> new FakeResult<>("ok", null)).get(5, TimeUnit.SECONDS));
+    }
+
+    @org.junit.Test
+    public void testQuotaErrorIsRetried() throws Exception {
+        ApiThrottle throttle = new ApiThrottle(1000, 4, 2, 1);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> result = throttle.submit(() -> calls.incrementAndGet() == 1
+                ? new FakeResult<>(null, new OverQueryLimitException("slow down"))
+                : new FakeResult<>("ok", null));
+
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+        assertEquals(1, throttle.getQuotaErrorCount());
+    }
+
+    @org.junit.Test
+    public void testRetryThrowingCompletesResult() throws Exception {
+        ApiThrottle throttle = new ApiThrottle(1000, 4, 2, 1);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> result = throttle.submit(() -> {
+            if (calls.incrementAndGet() == 1) {
+                return new FakeResult<>(null, new OverQueryLimitException("slow down"));
+            }
+            throw new IllegalStateException("context closed");
+        });
+
+        assertFailsWith(IllegalStateException.class, result);
+        assertEquals("ok", throttle.submit(() -> new FakeResult<>("ok", null)).get(5, TimeUnit.SECONDS));
+    }
+
+    @org.junit.Test
+    public void testQuotaErrorsGiveUpAfterRetries() throws Exception {
+        ApiThrottle throttle = new ApiThrottle(1000, 4, 2, 1);
+        CompletableFuture<String> result = throttle.submit(() ->
+                new FakeResult<>(null, new OverQueryLimitException("slow down")));
+
+        assertFailsWith(OverQueryLimitException.class, result);
+        assertEquals(3, throttle.getQuotaErrorCount());
+        assertEquals(1, throttle.getRejectedCount());
+        assertTrue(throttle.getConcurrencyLimit() < 4);
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> type, CompletableFuture<?> result)
+            throws Exception {
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("the call did not fail");
+        } catch (ExecutionException e) {
+            assertTrue(type.isInstance(e.getCause()));
+        }
+    }
+
+    /**
+     * A call answered at once when its callback is set.
+     */
+    private static class FakeResult<T> implements PendingResult<T> {
+        private final T response;
+        private final Throwable error;
+
+        FakeResult(T response, Throwable error) {
+            this.response = response;
+            this.error = error;
+        }
+
+        @Override
+        public void setCallback(Callback<T> callback) {
+            if (error == null) {
+                callback.onResult(response);
+            } else {
+                callback.onFailure(error);
+            }
+        }
+
+        @Override
+        public T await() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public T awaitIgnoreError() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
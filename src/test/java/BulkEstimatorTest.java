@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for BulkEstimator class
+ */
+public class BulkEstimatorTest {
+    @org.junit.Test
+    public void testRowsAreWrittenInInputOrder() throws IOException {
+        AtomicInteger callCount = new AtomicInteger();
+        MapDataSource dataSource = (origin, destination, travelMode, arrivalTime) -> {
+            callCount.incrementAndGet();
+            try {
+                Thread.sleep(origin.length() * 5);
+            } catch (InterruptedException e) {
+                return null;
+            }
+            return new RouteInfo(origin, destination, 1200, 17, 0, origin, destination, null);
+        };
+        StringBuilder input = new StringBuilder("Address From,Address To,Name,Arrival,Transport,Importance\n");
+        for (int i = 0; i < 20; i++) {
+            input.append("\"Mountain View, CA").append(i % 3 == 0 ? " long address" : "")
+                    .append("\",SJSU,Class ").append(i).append(",12/10/2018 10:30,driving,3\n");
+        }
+        StringWriter output = new StringWriter();
+        BulkEstimator estimator = new BulkEstimator(dataSource, 4);
+        estimator.run(new StringReader(input.toString()), output);
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(21, lines.length);
+        assertEquals(BulkEstimator.OUTPUT_HEADER, lines[0]);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(lines[i + 1],
+                    lines[i + 1].startsWith("Class " + i + ",Dec 10 2018 - 10:30,Dec 10 2018 - 09:"));
+            assertTrue(lines[i + 1], lines[i + 1].contains(",20,"));
+        }
+        assertEquals(20, callCount.get());
+        assertEquals(20, estimator.getRowCount());
+    }
+
+    @org.junit.Test
+    public void testInvalidRowsDoNotStopTheRun() throws IOException {
+        String input = "Mountain View,SJSU,Class,12/10/2018 10:30,bus,3\n"
+                + "Mountain View,SJSU,Lunch,12/10/2018 12:00,walking\n";
+        StringWriter output = new StringWriter();
+        BulkEstimator estimator = new BulkEstimator((origin, destination, travelMode, arrivalTime) -> null, 1);
+        estimator.run(new StringReader(input), output);
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].contains("ERROR"));
+        assertTrue(lines[2].startsWith("Lunch,Dec 10 2018 - 12:00"));
+        assertTrue(lines[2].endsWith("NO INFO"));
+        assertEquals(1, estimator.getErrorCount());
+    }
+
+    @org.junit.Test
+    public void testUnreachableGoogleGivesEventsWithoutInfo() throws IOException {
+        String input = "Mountain View,SJSU,Class,12/10/2018 10:30,driving,3\n";
+        StringWriter output = new StringWriter();
+        BulkEstimator estimator = new BulkEstimator((origin, destination, travelMode, arrivalTime) -> {
+            throw new MapDataUnavailableException(new IOException("offline"));
+        }, 1);
+        estimator.run(new StringReader(input), output);
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].startsWith("Class,Dec 10 2018 - 10:30"));
+        assertTrue(lines[1].endsWith("NO INFO"));
+    }
+
+    @org.junit.Test
+    public void testSplitRowWithQuotes() {
+        assertEquals(3, BulkEstimator.splitRow("\"a, b\",c,\"say \"\"hi\"\"\"").size());
+        assertEquals("say \"hi\"", BulkEstimator.splitRow("\"a, b\",c,\"say \"\"hi\"\"\"").get(2));
+        assertEquals("BICYCLING", BulkEstimator.parseRow("a,b,c,01/02/2019 08:00,Biking").getTransport());
+    }
+}
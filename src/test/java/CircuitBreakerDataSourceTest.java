@@ -0,0 +1,68 @@
+import java.io.IOException;
+import java.util.GregorianCalendar;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for CircuitBreakerDataSource class
+ */
+public class CircuitBreakerDataSourceTest {
+    @org.junit.Test
+    public void testSlowRequestsOpenTheCircuit() {
+        AtomicInteger callCount = new AtomicInteger();
+        MapDataSource slowSource = (origin, destination, travelMode, arrivalTime) -> {
+            callCount.incrementAndGet();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                return null;
+            }
+            return new RouteInfo(origin, destination, 60, 1, 0, origin, destination, null);
+        };
+        CircuitBreakerDataSource dataSource = new CircuitBreakerDataSource(slowSource, 50, 2, 60000);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(null, dataSource.requestMapData("testing", "testing", "DRIVING",
+                    new GregorianCalendar(2019, 1, 15)));
+        }
+        assertEquals(2, callCount.get());
+        assertEquals(2, dataSource.getTimeoutCount());
+        assertEquals(2, dataSource.getShortCircuitCount());
+        assertEquals(true, dataSource.isOpen());
+    }
+
+    @org.junit.Test
+    public void testProbeClosesTheCircuit() throws InterruptedException {
+        AtomicInteger callCount = new AtomicInteger();
+        MapDataSource recoveringSource = (origin, destination, travelMode, arrivalTime) -> {
+            if (callCount.incrementAndGet() == 1) {
+                throw new MapDataUnavailableException(new IOException("connection reset"));
+            }
+            return new RouteInfo(origin, destination, 60, 1, 0, origin, destination, null);
+        };
+        CircuitBreakerDataSource dataSource = new CircuitBreakerDataSource(recoveringSource, 1000, 1, 10);
+
+        dataSource.requestMapData("testing", "testing", "DRIVING", new GregorianCalendar(2019, 1, 15));
+        assertEquals(true, dataSource.isOpen());
+        Thread.sleep(20);
+        dataSource.requestMapData("testing", "testing", "DRIVING", new GregorianCalendar(2019, 1, 15));
+        assertEquals(false, dataSource.isOpen());
+    }
+
+    @org.junit.Test
+    public void testTripsWithoutResultKeepTheCircuitClosed() {
+        MapDataSource typoSource = (origin, destination, travelMode, arrivalTime) ->
+                origin.equals("Mountain View, CA") ? new RouteInfo(origin, destination, 60, 1, 0, origin, destination,
+                        null) : null;
+        CircuitBreakerDataSource dataSource = new CircuitBreakerDataSource(typoSource, 1000, 2, 60000);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(null, dataSource.requestMapData("Mountian Veiw", "SJSU", "DRIVING",
+                    new GregorianCalendar(2019, 1, 15)));
+        }
+        assertEquals(false, dataSource.isOpen());
+        assertEquals(true, dataSource.requestMapData("Mountain View, CA", "SJSU", "DRIVING",
+                new GregorianCalendar(2019, 1, 15)) != null);
+    }
+}
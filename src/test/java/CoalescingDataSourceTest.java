@@ -0,0 +1,118 @@
+import java.util.GregorianCalendar;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for CoalescingDataSource class
+ */
+public class CoalescingDataSourceTest {
+    @org.junit.Test
+    public void testSameTripSharesOneRequest() throws InterruptedException {
+        AtomicInteger callCount = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CoalescingDataSource dataSource = new CoalescingDataSource((origin, destination, travelMode, arrivalTime) -> {
+            callCount.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            return new RouteInfo(origin, destination, 60, 1, 0, origin, destination, null);
+        });
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> dataSource.requestMapData("testing", "testing", "DRIVING",
+                    new GregorianCalendar(2019, 1, 15, 9, 0)));
+            threads[i].start();
+        }
+        while (dataSource.getSharedCount() < threads.length - 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, callCount.get());
+    }
+
+    @org.junit.Test
+    public void testErrorReachesWaitingCallers() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CoalescingDataSource dataSource = new CoalescingDataSource((origin, destination, travelMode, arrivalTime) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            throw new StackOverflowError();
+        });
+
+        AtomicReference<Throwable> waiterError = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                dataSource.requestMapData("testing", "testing", "DRIVING", new GregorianCalendar(2019, 1, 15, 9, 0));
+            } catch (StackOverflowError e) {
+                // expected, the caller doing the request gets the error itself
+            }
+        });
+        Thread waiter = new Thread(() -> {
+            try {
+                dataSource.requestMapData("testing", "testing", "DRIVING", new GregorianCalendar(2019, 1, 15, 9, 0));
+            } catch (StackOverflowError e) {
+                waiterError.set(e);
+            }
+        });
+        caller.start();
+        while (!caller.getState().equals(Thread.State.WAITING)) {
+            Thread.sleep(5);
+        }
+        waiter.start();
+        while (dataSource.getSharedCount() < 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        caller.join();
+        waiter.join(5000);
+        assertEquals(false, waiter.isAlive());
+        assertEquals(true, waiterError.get() instanceof StackOverflowError);
+    }
+
+    @org.junit.Test
+    public void testInterruptedWaiterGivesUp() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CoalescingDataSource dataSource = new CoalescingDataSource((origin, destination, travelMode, arrivalTime) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            return null;
+        });
+
+        Thread caller = new Thread(() -> dataSource.requestMapData("testing", "testing", "DRIVING",
+                new GregorianCalendar(2019, 1, 15, 9, 0)));
+        AtomicReference<Boolean> waiterInterrupted = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            dataSource.requestMapData("testing", "testing", "DRIVING", new GregorianCalendar(2019, 1, 15, 9, 0));
+            waiterInterrupted.set(Thread.currentThread().isInterrupted());
+        });
+        caller.start();
+        while (!caller.getState().equals(Thread.State.WAITING)) {
+            Thread.sleep(5);
+        }
+        waiter.start();
+        while (dataSource.getSharedCount() < 1) {
+            Thread.sleep(5);
+        }
+        waiter.interrupt();
+        waiter.join(5000);
+        assertEquals(false, waiter.isAlive());
+        assertEquals(true, waiterInterrupted.get());
+        release.countDown();
+        caller.join();
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit test for CompactEventStore class
+ */
+public class CompactEventStoreTest {
+    @org.junit.Test
+    public void testEventsAreMadeAgain() {
+        EventWithInfo withInfo = new EventWithInfo(new GooglePlaceInfo("origin-id", "destination-id",
+                new String[]{"Monday: 7:00 AM to 10:00 PM", "Tuesday: Closed"}, "1", "university", 4.5f),
+                "Mountain View", "SJSU", "class", "Mountain View", "San Jose State University",
+                new GregorianCalendar(2019, 1, 15, 9, 0), CalendarEvent.TRANSIT_TYPE, 45 * 60, 17, 4, 4.5);
+        HashMap<String, Long> modeDurations = new HashMap<>();
+        modeDurations.put(CalendarEvent.TRANSIT_TYPE, 2700L);
+        modeDurations.put(CalendarEvent.DRIVING_TYPE, 1500L);
+        withInfo.setModeDurations(modeDurations);
+        withInfo.editAlarmAfterEventOccurred(-10);
+        CalendarEvent withoutInfo = new EventWithoutInfo("SJSU", "Mountain View", "meeting",
+                new GregorianCalendar(2019, 1, 16, 10, 30), CalendarEvent.WALKING_TYPE, 2);
+        CalendarEvent unknownTransport = new EventWithoutInfo("home", "work", "lunch",
+                new GregorianCalendar(2019, 1, 16, 12, 0), "BIKING", 3);
+        CompactEventStore store = new CompactEventStore();
+        for (CalendarEvent event : new CalendarEvent[]{unknownTransport, withInfo, withoutInfo}) {
+            store.put(event.getArrivalDateTime().getTimeInMillis(), event);
+        }
+
+        List<CalendarEvent> events = store.range(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals(3, events.size());
+        EventWithInfo made = (EventWithInfo) events.get(0);
+        assertNotSame(withInfo, made);
+        assertEquals(withInfo.toString(), made.toString());
+        assertEquals(withInfo.getAlarmTime(), made.getAlarmTime());
+        assertEquals(withInfo.getTravelDistance(), made.getTravelDistance());
+        assertEquals(45, made.getModeDurationInMin(CalendarEvent.TRANSIT_TYPE));
+        assertEquals(25, made.getModeDurationInMin(CalendarEvent.DRIVING_TYPE));
+        assertEquals(2, made.getModeDurations().size());
+        assertEquals("Tuesday: Closed", made.getPlaceInfo().getOpenPeriod()[1]);
+        assertEquals(withoutInfo.toString(), events.get(1).toString());
+        assertEquals(unknownTransport.getAlarmString(), events.get(2).getAlarmString());
+        // addresses used twice are kept once
+        assertEquals(14, store.getStringCount());
+
+        // a reused slot does not keep the travel times of the removed event
+        long key = withInfo.getArrivalDateTime().getTimeInMillis();
+        store.remove(key);
+        store.put(key, new EventWithInfo(null, "Mountain View", "SJSU", "class", "Mountain View",
+                "San Jose State University", new GregorianCalendar(2019, 1, 15, 9, 0), CalendarEvent.DRIVING_TYPE,
+                25 * 60, 17, 4, 4.5));
+        assertFalse(((EventWithInfo) store.get(key)).hasModeDurations());
+    }
+
+    @org.junit.Test
+    public void testRemoveAndRange() {
+        CompactEventStore store = new CompactEventStore();
+        for (int minute = 199; minute >= 0; minute--) {
+            store.put(key(minute), event(minute));
+        }
+        for (int minute = 0; minute < 200; minute += 2) {
+            store.remove(key(minute));
+        }
+        assertFalse(store.remove(key(0)));
+        assertNull(store.get(key(0)));
+        store.put(key(0), event(0));
+
+        assertEquals(101, store.size());
+        List<CalendarEvent> range = store.range(key(0), key(10), Integer.MAX_VALUE);
+        assertEquals(6, range.size());
+        assertEquals("event 0", range.get(0).eventName);
+        assertEquals("event 9", range.get(5).eventName);
+        assertEquals("event 101", store.range(key(100), Long.MAX_VALUE, 1).get(0).eventName);
+    }
+
+    @org.junit.Test
+    public void testRangeDoesNotChangeWithStore() {
+        CompactEventStore store = new CompactEventStore();
+        for (int minute = 0; minute < 5; minute++) {
+            store.put(key(minute), event(minute));
+        }
+        List<CalendarEvent> range = store.range(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+        store.put(key(10), event(10));
+        store.remove(key(0));
+        store.remove(key(1));
+
+        assertEquals(5, range.size());
+        assertEquals("event 0", range.get(0).eventName);
+        assertEquals("event 4", range.get(4).eventName);
+    }
+
+    @org.junit.Test
+    public void testEventModelSavesCompactStore() throws IOException {
+        File file = File.createTempFile("testCompactEventStore", ".se");
+        file.delete();
+        EventModel model = new EventModel(file.getPath(), new CompactEventStore());
+        for (int minute = 0; minute < 10; minute++) {
+            model.addEvent(event(minute));
+        }
+        model.saveEventsToFile();
+
+        EventModel restored = new EventModel(file.getPath(), new CompactEventStore());
+        restored.awaitRestore();
+        assertEquals(10, restored.getEventsList().size());
+        assertEquals("event 9", restored.getEventsList().get(9).eventName);
+        file.delete();
+    }
+
+    private static long key(int minute) {
+        return event(minute).getArrivalDateTime().getTimeInMillis();
+    }
+
+    private static CalendarEvent event(int minute) {
+        return new EventWithoutInfo("home", "school", "event " + minute,
+                new GregorianCalendar(2019, 1, 1, 0, minute), CalendarEvent.BIKING_TYPE, 4);
+    }
+}
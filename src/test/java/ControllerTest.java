@@ -2,7 +2,6 @@
 
 import java.lang.reflect.Field;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 
 import static org.junit.Assert.assertEquals;
 public class ControllerTest {
@@ -19,8 +18,8 @@ public class ControllerTest {
             Field privateHashMapField = EventModel.class.
                     getDeclaredField("events");
             privateHashMapField.setAccessible(true);
-            HashMap<GregorianCalendar, CalendarEvent> map = (HashMap<GregorianCalendar, CalendarEvent>) privateHashMapField.get(model);
-            map.put(event.getArrivalDateTime(), event);
+            EventStore map = (EventStore) privateHashMapField.get(model);
+            map.put(event.getArrivalDateTime().getTimeInMillis(), event);
         }catch (Exception e){e.printStackTrace();}
 
         assertEquals(true,controller.checkIfTimeOccupied(new GregorianCalendar(2019,1,15)));
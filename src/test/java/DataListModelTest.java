@@ -0,0 +1,40 @@
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Unit test for DataListModel class
+ */
+public class DataListModelTest {
+    @org.junit.Test
+    public void testEventsAreReadByPage() {
+        EventModel model = new EventModel("testDataListModel.se", new CompactEventStore());
+        for (int minute = 0; minute < 150; minute++) {
+            model.addEvent(event(minute));
+        }
+        DataListModel listModel = new DataListModel(model);
+
+        assertEquals(150, listModel.getSize());
+        assertEquals("event 70", ((CalendarEvent) listModel.getElementAt(70)).eventName);
+        assertEquals("event 149", ((CalendarEvent) listModel.getElementAt(149)).eventName);
+        assertEquals("event 0", ((CalendarEvent) listModel.getElementAt(0)).eventName);
+
+        listModel.remove(event(0));
+        assertEquals(149, listModel.getSize());
+        assertEquals("event 1", ((CalendarEvent) listModel.getElementAt(0)).eventName);
+    }
+
+    @org.junit.Test
+    public void testCompactEventsAreNotKeptByTheModel() {
+        EventModel model = new EventModel("testDataListModelCompact.se", new CompactEventStore());
+        model.addEvent(event(0));
+        assertNotSame(model.getEventsList(), model.getEventsList());
+        assertEquals(1, model.getKeys().length);
+    }
+
+    private static CalendarEvent event(int minute) {
+        return new EventWithoutInfo("home", "school", "event " + minute,
+                new GregorianCalendar(2019, 1, 1, 9, minute), CalendarEvent.BIKING_TYPE, 4);
+    }
+}
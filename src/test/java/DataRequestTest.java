@@ -0,0 +1,108 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for DataRequest against MockMapsServer
+ */
+public class DataRequestTest {
+    private MockMapsServer server;
+    private File placeCacheFile;
+    private File addressIndexFile;
+    private DataRequest dataRequest;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new MockMapsServer(0, null);
+        server.start();
+        placeCacheFile = File.createTempFile("testPlaceCache", ".se");
+        placeCacheFile.delete();
+        addressIndexFile = File.createTempFile("testAddressIndex", ".se");
+        addressIndexFile.delete();
+        dataRequest = new DataRequest("AIza-mock-key", server.getBaseUrl(), new RouteCache(),
+                new PlaceDetailsCache(placeCacheFile.getPath()), new AddressIndex(addressIndexFile.getPath()));
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+        placeCacheFile.delete();
+        addressIndexFile.delete();
+    }
+
+    @Test
+    public void testRequestAndCachedRequest() {
+        RouteInfo info = dataRequest.requestMapData("Mountain View, CA", "San Jose State University",
+                CalendarEvent.DRIVING_TYPE, new GregorianCalendar(2019, 1, 15, 9, 0));
+
+        assertEquals("San Jose State University", info.getDestName());
+        assertEquals(1200, info.getDurationSec());
+        assertEquals(17, info.getDistance());
+        assertEquals(3, server.getRequestCount());
+
+        dataRequest.requestMapData("Mountain View, CA", "San Jose State University",
+                CalendarEvent.DRIVING_TYPE, new GregorianCalendar(2019, 1, 15, 9, 0));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testTravelTimeSkipsTheCache() {
+        GregorianCalendar departure = new GregorianCalendar();
+        assertEquals(1500, dataRequest.requestTravelTime("Mountain View, CA", "San Jose State University",
+                CalendarEvent.DRIVING_TYPE, departure));
+        long requestCount = server.getRequestCount();
+
+        assertEquals(1500, dataRequest.requestTravelTime("Mountain View, CA", "San Jose State University",
+                CalendarEvent.DRIVING_TYPE, departure));
+        assertEquals(requestCount + 1, server.getRequestCount());
+    }
+
+    @Test
+    public void testKnownAddressSkipsGeocoding() {
+        dataRequest.requestMapData("Mountain View, CA", "San Jose State University",
+                CalendarEvent.DRIVING_TYPE, new GregorianCalendar(2019, 1, 15, 9, 0));
+        RouteInfo info = dataRequest.requestMapData("mountain view ca usa",
+                "1 washington sq san jose ca 95192 usa", CalendarEvent.DRIVING_TYPE,
+                new GregorianCalendar(2019, 1, 15, 9, 0));
+
+        assertEquals(3, server.getRequestCount());
+        assertEquals("San Jose State University", info.getDestName());
+        assertEquals("mock-origin", new AddressIndex(addressIndexFile.getPath()).getPlaceId("Mountain View CA"));
+    }
+
+    @Test
+    public void testAllModesRequest() {
+        dataRequest.setAllModes(true);
+        RouteInfo info = dataRequest.requestMapData("Mountain View, CA", "San Jose State University",
+                CalendarEvent.TRANSIT_TYPE, new GregorianCalendar(2019, 1, 15, 9, 0));
+
+        assertEquals(4, info.getModeDurations().size());
+        assertEquals(Long.valueOf(1200), info.getModeDurations().get(CalendarEvent.WALKING_TYPE));
+        long requestCount = server.getRequestCount();
+
+        // the route and the times of all modes come from the cache
+        RouteInfo cached = dataRequest.requestMapData("Mountain View, CA", "San Jose State University",
+                CalendarEvent.TRANSIT_TYPE, new GregorianCalendar(2019, 1, 15, 9, 0));
+        assertEquals(requestCount, server.getRequestCount());
+        assertEquals(info.getModeDurations(), cached.getModeDurations());
+    }
+
+    @Test
+    public void testQuotaErrorsAreRetried() {
+        server.setErrorRate(0.3);
+        dataRequest.setThrottle(new ApiThrottle(1000, 8, 20, 1));
+        for (int i = 0; i < 10; i++) {
+            RouteInfo info = dataRequest.requestMapData("Mountain View, CA " + i, "San Jose State University",
+                    CalendarEvent.DRIVING_TYPE, new GregorianCalendar(2019, 1, 15, 9, 0));
+            assertEquals(true, info != null);
+        }
+        assertEquals(server.getErrorCount(), dataRequest.getThrottle().getQuotaErrorCount());
+        assertEquals(0, dataRequest.getThrottle().getRejectedCount());
+    }
+}
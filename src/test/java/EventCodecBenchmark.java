@@ -0,0 +1,81 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the size and load time of events saved by java serialization and by EventCodec.
+ * Usage: EventCodecBenchmark [number of events]
+ */
+public class EventCodecBenchmark {
+    private final static int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        int count = args.length >= 1 ? Integer.parseInt(args[0]) : 10000;
+        List<CalendarEvent> events = createEvents(count);
+
+        HashMap<GregorianCalendar, CalendarEvent> savedEvents = new HashMap<>();
+        for (CalendarEvent event : events) {
+            savedEvents.put(event.getArrivalDateTime(), event);
+        }
+        ByteArrayOutputStream javaBytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(javaBytes);
+        out.writeObject(savedEvents);
+        out.close();
+        byte[] codecBytes = EventCodec.encode(events);
+
+        long javaNanos = Long.MAX_VALUE;
+        long codecNanos = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            Map<?, ?> javaEvents = (Map<?, ?>) new ObjectInputStream(
+                    new ByteArrayInputStream(javaBytes.toByteArray())).readObject();
+            javaNanos = Math.min(javaNanos, System.nanoTime() - start);
+            start = System.nanoTime();
+            List<CalendarEvent> codecEvents = EventCodec.decode(codecBytes);
+            codecNanos = Math.min(codecNanos, System.nanoTime() - start);
+            if (javaEvents.size() != count || codecEvents.size() != count) {
+                throw new IllegalStateException("Events were lost");
+            }
+        }
+        System.out.printf("%d events%n", count);
+        System.out.printf("java serialization: %,d bytes, load %d ms%n", javaBytes.size(), javaNanos / 1000000);
+        System.out.printf("EventCodec:         %,d bytes, load %d ms%n", codecBytes.length, codecNanos / 1000000);
+    }
+
+    /**
+     * Creates events between a small set of places, as a real calendar would have.
+     *
+     * @param count number of events
+     * @return the events
+     */
+    static List<CalendarEvent> createEvents(int count) {
+        Random random = new Random(151);
+        String[] places = new String[40];
+        for (int i = 0; i < places.length; i++) {
+            places[i] = (100 + i * 7) + " Main St, San Jose, CA 951" + (10 + i) + ", USA";
+        }
+        String[] modes = {CalendarEvent.DRIVING_TYPE, CalendarEvent.TRANSIT_TYPE, CalendarEvent.BIKING_TYPE,
+                CalendarEvent.WALKING_TYPE};
+        ArrayList<CalendarEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GregorianCalendar arrival = new GregorianCalendar(2019, 0, 1, 8, 0);
+            arrival.add(GregorianCalendar.MINUTE, i * 30);
+            String from = places[random.nextInt(places.length)];
+            String to = places[random.nextInt(places.length)];
+            String mode = modes[random.nextInt(modes.length)];
+            if (i % 10 == 0) {
+                events.add(new EventWithoutInfo(from, to, "event " + i, arrival, mode, 3));
+            } else {
+                events.add(new EventWithInfo(new GooglePlaceInfo("origin-" + from.hashCode(),
+                        "destination-" + to.hashCode(), new String[]{"Monday: 7:00 AM to 10:00 PM"}, "1",
+                        "establishment", 4.2f), from, to, "event " + i, from, to, arrival, mode,
+                        300 + random.nextInt(3600), random.nextInt(30), 1 + random.nextInt(5), 4.2));
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for EventCodec class
+ */
+public class EventCodecTest {
+    @org.junit.Test
+    public void testRoundTrip() throws IOException {
+        EventWithInfo withInfo = new EventWithInfo(new GooglePlaceInfo("origin-id", "destination-id",
+                new String[]{"Monday: 7:00 AM to 10:00 PM", "Tuesday: Closed"}, "1", "university", 4.5f),
+                "Mountain View", "SJSU", "class", "Mountain View", "San Jose State University",
+                new GregorianCalendar(2019, 1, 15, 9, 0), CalendarEvent.TRANSIT_TYPE, 45 * 60, 17, 4, 4.5);
+        HashMap<String, Long> modeDurations = new HashMap<>();
+        modeDurations.put(CalendarEvent.DRIVING_TYPE, 1200L);
+        modeDurations.put(CalendarEvent.TRANSIT_TYPE, 2700L);
+        withInfo.setModeDurations(modeDurations);
+        withInfo.editAlarmAfterEventOccurred(-10);
+        CalendarEvent withoutInfo = new EventWithoutInfo("home", "work", "meeting",
+                new GregorianCalendar(2019, 1, 16, 10, 30), CalendarEvent.WALKING_TYPE, 2);
+        CalendarEvent unknownTransport = new EventWithoutInfo("home", "work", "lunch",
+                new GregorianCalendar(2019, 1, 16, 12, 0), "BIKING", 3);
+
+        List<CalendarEvent> events = EventCodec.decode(EventCodec.encode(
+                Arrays.asList(withInfo, withoutInfo, unknownTransport)));
+
+        assertEquals(3, events.size());
+        EventWithInfo decoded = (EventWithInfo) events.get(0);
+        assertEquals(withInfo.toString(), decoded.toString());
+        assertEquals(withInfo.getAlarmTime(), decoded.getAlarmTime());
+        assertEquals(withInfo.getTravelDistance(), decoded.getTravelDistance());
+        assertEquals(45, decoded.getModeDurationInMin(CalendarEvent.TRANSIT_TYPE));
+        assertEquals("Tuesday: Closed", decoded.getPlaceInfo().getOpenPeriod()[1]);
+        assertEquals(4.5f, decoded.getPlaceInfo().getDestinationRating(), 0);
+        assertEquals(withoutInfo.toString(), events.get(1).toString());
+        assertEquals(unknownTransport.getAlarmString(), events.get(2).getAlarmString());
+    }
+
+    @org.junit.Test
+    public void testReadsJavaSerialization() throws IOException {
+        HashMap<GregorianCalendar, CalendarEvent> savedEvents = new HashMap<>();
+        CalendarEvent event = new EventWithoutInfo("home", "work", "meeting",
+                new GregorianCalendar(2019, 1, 16, 10, 30), CalendarEvent.WALKING_TYPE, 2);
+        savedEvents.put(event.getArrivalDateTime(), event);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(savedEvents);
+        out.close();
+
+        List<CalendarEvent> events = EventCodec.decode(bytes.toByteArray());
+        assertEquals(1, events.size());
+        assertEquals(event.toString(), events.get(0).toString());
+
+        List<CalendarEvent> oldFile = EventCodec.read(new FileInputStream("CalendarEvent1.se"));
+        assertEquals(1, oldFile.size());
+        byte[] migrated = EventCodec.encode(oldFile);
+        assertEquals(oldFile.get(0).toString(), EventCodec.decode(migrated).get(0).toString());
+    }
+
+    @org.junit.Test
+    public void testVarLong() throws IOException {
+        ArrayList<Long> values = new ArrayList<>(Arrays.asList(0L, 1L, 127L, 128L, 300L, Long.MAX_VALUE, -1L));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+        for (long value : values) {
+            EventCodec.writeVarLong(out, value);
+        }
+        java.io.DataInputStream in = new java.io.DataInputStream(
+                new java.io.ByteArrayInputStream(bytes.toByteArray()));
+        for (long value : values) {
+            assertEquals(value, EventCodec.readVarLong(in));
+        }
+        assertTrue(bytes.size() < values.size() * 8);
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test for EventJournal class
+ */
+public class EventJournalTest {
+    @org.junit.Test
+    public void testChangesAreReplayed() throws IOException {
+        File dir = Files.createTempDirectory("journal").toFile();
+        String filePath = new File(dir, "events.se").getPath();
+        EventJournal journal = new EventJournal(filePath + ".journal", EventJournal.FsyncPolicy.INTERVAL);
+        EventModel model = new EventModel(filePath);
+        model.useJournal(journal);
+        for (int day = 1; day <= 3; day++) {
+            model.addEvent(createEvent(day));
+        }
+        model.removeEvents(createEvent(2));
+        model.editPublishedEvent(model.getEventsList().get(0), 15);
+        GregorianCalendar editedAlarm = model.getEventsList().get(0).getAlarmTime();
+        journal.sync();
+
+        assertEquals(false, new File(filePath).exists());
+
+        EventModel restored = openModel(filePath, Long.MAX_VALUE);
+        assertEquals(2, restored.getEventsList().size());
+        assertEquals("event 3", restored.getEventsList().get(1).eventName);
+        assertEquals(editedAlarm, restored.getEventsList().get(0).getAlarmTime());
+    }
+
+    @org.junit.Test
+    public void testRecordCutShortIsDropped() throws IOException {
+        File dir = Files.createTempDirectory("journal").toFile();
+        String filePath = new File(dir, "events.se").getPath();
+        EventJournal journal = new EventJournal(filePath + ".journal", EventJournal.FsyncPolicy.ALWAYS);
+        EventModel model = new EventModel(filePath);
+        model.useJournal(journal);
+        model.addEvent(createEvent(1));
+        model.addEvent(createEvent(2));
+        journal.sync();
+        long goodBytes = journal.getJournalBytes();
+        FileOutputStream out = new FileOutputStream(filePath + ".journal", true);
+        out.write(new byte[]{0, 0, 1, 0, 1, 2, 3});
+        out.close();
+
+        EventJournal reopened = new EventJournal(filePath + ".journal", EventJournal.FsyncPolicy.ALWAYS);
+        assertEquals(2, reopened.readAll().size());
+        assertEquals(goodBytes, new File(filePath + ".journal").length());
+    }
+
+    @org.junit.Test
+    public void testCompactionFoldsJournalIntoSnapshot() throws IOException {
+        File dir = Files.createTempDirectory("journal").toFile();
+        String filePath = new File(dir, "events.se").getPath();
+        EventModel model = openModel(filePath, 2000);
+        for (int day = 1; day <= 20; day++) {
+            model.addEvent(createEvent(day));
+        }
+        model.saveEventsToFile();
+
+        assertTrue(new File(filePath).exists());
+        assertEquals(0, new File(filePath + ".journal").length());
+        EventModel restored = openModel(filePath, 2000);
+        assertEquals(20, restored.getEventsList().size());
+    }
+
+    @org.junit.Test
+    public void testLastGroupIsForcedAfterTheInterval() throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("journal").toFile();
+        String filePath = new File(dir, "events.se").getPath();
+        EventJournal journal = new EventJournal(filePath + ".journal", EventJournal.FsyncPolicy.INTERVAL);
+        journal.append(EventJournal.ADD, 1L, createEvent(1));
+
+        long deadline = System.currentTimeMillis() + 10 * EventJournal.DEFAULT_FSYNC_INTERVAL_MILLIS;
+        while (journal.getFsyncCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, journal.getFsyncCount());
+        assertTrue(journal.getJournalBytes() > 0);
+    }
+
+    @org.junit.Test
+    public void testWriterSurvivesBrokenRecord() throws IOException {
+        File dir = Files.createTempDirectory("journal").toFile();
+        String filePath = new File(dir, "events.se").getPath();
+        EventJournal journal = new EventJournal(filePath + ".journal", EventJournal.FsyncPolicy.NEVER);
+        CalendarEvent broken = createEvent(1);
+        broken.arrivalDateTime = null;
+        journal.append(EventJournal.ADD, 1L, broken);
+        journal.append(EventJournal.ADD, 2L, createEvent(2));
+        try {
+            journal.sync();
+            fail("the broken record was not reported");
+        } catch (IOException e) {
+            // expected
+        }
+        journal.append(EventJournal.ADD, 3L, createEvent(3));
+        journal.sync();
+
+        assertEquals(2, journal.readAll().size());
+    }
+
+    /**
+     * Opens a model with a journal and waits until the saved events are restored.
+     *
+     * @param filePath     file path of the saved events
+     * @param compactBytes size of the journal that starts a compaction
+     * @return the model
+     * @throws IOException when the journal can not be opened
+     */
+    private EventModel openModel(String filePath, long compactBytes) throws IOException {
+        EventModel model = new EventModel(filePath);
+        model.useJournal(new EventJournal(filePath + ".journal", EventJournal.FsyncPolicy.NEVER, compactBytes));
+        model.awaitRestore();
+        return model;
+    }
+
+    /**
+     * Creates an event at 9:00 on a day of February 2019.
+     *
+     * @param day day of the month
+     * @return the event
+     */
+    private CalendarEvent createEvent(int day) {
+        return new EventWithInfo(null, "Mountain View", "SJSU", "event " + day, "Mountain View", "SJSU",
+                new GregorianCalendar(2019, 1, day, 9, 0), CalendarEvent.DRIVING_TYPE, 20 * 60, 10, 3, 0);
+    }
+}
@@ -0,0 +1,111 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stress test of EventModel changed by many threads at once
+ */
+public class EventModelStressTest {
+    private final static int WRITERS = 8;
+    private final static int EVENTS_PER_WRITER = 400;
+    private final static int EDITS_PER_WRITER = 100;
+    private EventJournal journal;
+
+    @org.junit.Test
+    public void testNoLostUpdates() throws Exception {
+        File dir = Files.createTempDirectory("stress").toFile();
+        String filePath = new File(dir, "events.se").getPath();
+        EventModel model = openModel(filePath);
+        CalendarEvent shared = createEvent(0, 0);
+        model.addEvent(shared);
+        GregorianCalendar alarm = (GregorianCalendar) shared.getAlarmTime().clone();
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int writer = 1; writer <= WRITERS; writer++) {
+            int day = writer;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < EVENTS_PER_WRITER; i++) {
+                    model.addEvent(createEvent(day, i));
+                    if (i % 2 == 1) {
+                        model.removeEvents(createEvent(day, i - 1));
+                    }
+                    if (i < EDITS_PER_WRITER) {
+                        model.editPublishedEvent(shared, 1);
+                    }
+                }
+                return null;
+            }));
+        }
+        futures.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; i < 200; i++) {
+                List<CalendarEvent> snapshot = model.getEventsList();
+                for (int j = 1; j < snapshot.size(); j++) {
+                    assertTrue(snapshot.get(j - 1).getArrivalDateTime().before(snapshot.get(j).getArrivalDateTime()));
+                }
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int expected = 1 + WRITERS * EVENTS_PER_WRITER / 2;
+        alarm.add(GregorianCalendar.MINUTE, WRITERS * EDITS_PER_WRITER);
+        assertEquals(expected, model.getEventsList().size());
+        assertEquals(alarm, model.getEventsList().get(0).getAlarmTime());
+
+        // compactions run on the journal writer, wait for the ones already asked for
+        journal.sync();
+        assertTrue(journal.getCompactionCount() > 0);
+
+        model.saveEventsToFile();
+        EventModel restored = openModel(filePath);
+        assertEquals(expected, restored.getEventsList().size());
+        assertEquals(alarm, restored.getEventsList().get(0).getAlarmTime());
+    }
+
+    /**
+     * Opens a model with a small journal, so it is compacted many times during the test.
+     *
+     * @param filePath file path of the saved events
+     * @return the model
+     * @throws IOException when the journal can not be opened
+     */
+    private EventModel openModel(String filePath) throws IOException {
+        EventModel model = new EventModel(filePath);
+        journal = new EventJournal(filePath + ".journal", EventJournal.FsyncPolicy.NEVER, 16 * 1024);
+        model.useJournal(journal);
+        model.awaitRestore();
+        return model;
+    }
+
+    /**
+     * Creates an event in February 2019.
+     *
+     * @param day    day of the month
+     * @param minute minute of the day
+     * @return the event
+     */
+    private CalendarEvent createEvent(int day, int minute) {
+        return new EventWithInfo(null, "Mountain View", "SJSU", "event " + day + " " + minute, "Mountain View",
+                "SJSU", new GregorianCalendar(2019, 1, day + 1, 0, minute), CalendarEvent.DRIVING_TYPE,
+                20 * 60, 10, 3, 0);
+    }
+}
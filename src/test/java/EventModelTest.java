@@ -1,8 +1,17 @@
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class EventModelTest {
         @org.junit.Test
@@ -15,10 +24,100 @@ public class EventModelTest {
                 Field privateHashMapField = EventModel.class.
                         getDeclaredField("events");
                 privateHashMapField.setAccessible(true);
-                HashMap<GregorianCalendar, CalendarEvent> map = (HashMap<GregorianCalendar, CalendarEvent>) privateHashMapField.get(model);
-                map.put(event.getArrivalDateTime(), event);
+                EventStore map = (EventStore) privateHashMapField.get(model);
+                map.put(event.getArrivalDateTime().getTimeInMillis(), event);
             }catch (Exception e){e.printStackTrace();}
 
             assertEquals(true,model.isTimeOccupied(new GregorianCalendar(2019,1,15)));
         }
+
+        @org.junit.Test
+        public void testEventsBetweenAndNext() {
+            EventModel model = new EventModel("testEventModelRange.se");
+            for (int day = 20; day >= 1; day--) {
+                model.addEvent(new EventWithoutInfo("testing", "testing", "event " + day,
+                        new GregorianCalendar(2019, 1, day, 9, 0), CalendarEvent.BIKING_TYPE, 4));
+            }
+
+            assertEquals(20, model.getEventsList().size());
+            assertEquals("event 1", model.getEventsList().get(0).eventName);
+            List<CalendarEvent> range = model.eventsBetween(new GregorianCalendar(2019, 1, 5),
+                    new GregorianCalendar(2019, 1, 8, 9, 0));
+            assertEquals(3, range.size());
+            assertEquals("event 5", range.get(0).eventName);
+            assertEquals("event 7", range.get(2).eventName);
+            List<CalendarEvent> next = model.next(new GregorianCalendar(2019, 1, 18, 9, 0), 5);
+            assertEquals(3, next.size());
+            assertEquals("event 18", next.get(0).eventName);
+        }
+    
+        @org.junit.Test
+        public void testSnapshotsAreSharedAndNeverChange() {
+            EventModel model = new EventModel("testEventModelSnapshot.se");
+            GregorianCalendar arrival = new GregorianCalendar(2019, 1, 15, 9, 0);
+            model.addEvent(new EventWithInfo(null, "Mountain View", "SJSU", "class", "Mountain View", "SJSU",
+                    arrival, CalendarEvent.DRIVING_TYPE, 20 * 60, 10, 3, 0));
+            List<CalendarEvent> snapshot = model.getEventsList();
+            long version = model.getVersion();
+            GregorianCalendar alarm = snapshot.get(0).getAlarmTime();
+
+            assertSame(snapshot, model.getEventsList());
+            model.editPublishedEvent(snapshot.get(0), 15);
+            assertEquals(version + 1, model.getVersion());
+            assertNotSame(snapshot, model.getEventsList());
+            assertEquals(alarm, snapshot.get(0).getAlarmTime());
+            alarm.add(GregorianCalendar.MINUTE, 15);
+            assertEquals(alarm, model.getEventsList().get(0).getAlarmTime());
+        }
+
+        @org.junit.Test
+        public void testRestoreInBackgroundKeepsNewerChanges() throws Exception {
+            File file = File.createTempFile("testEventModelRestore", ".se");
+            ArrayList<CalendarEvent> saved = new ArrayList<>();
+            for (int minute = 0; minute < 2000; minute++) {
+                saved.add(new EventWithoutInfo("home", "school", "saved " + minute,
+                        new GregorianCalendar(2019, 1, 1, 0, minute), CalendarEvent.BIKING_TYPE, 4));
+            }
+            EventModel.writeEvents(file, saved);
+
+            EventModel model = new EventModel(file.getPath());
+            assertTrue(model.isTimeOccupied(new GregorianCalendar(2019, 1, 1, 0, 1999)));
+            model = new EventModel(file.getPath());
+            CountDownLatch restoreSeen = new CountDownLatch(1);
+            model.whenRestored(restoreSeen::countDown);
+            // the add does not wait, the saved event at the same time is not restored over it
+            model.addEvent(new EventWithoutInfo("home", "school", "new",
+                    new GregorianCalendar(2019, 1, 1, 0, 1999), CalendarEvent.BIKING_TYPE, 4));
+
+            assertTrue(restoreSeen.await(10, TimeUnit.SECONDS));
+            assertFalse(model.isRestoring());
+            // the windows are indexed by the restore thread, not by the first search on the event dispatch thread
+            Field windowsField = EventModel.class.getDeclaredField("windows");
+            windowsField.setAccessible(true);
+            assertTrue(windowsField.get(model) != null);
+            assertEquals(2000, model.getEventsList().size());
+            assertEquals("saved 0", model.getEventsList().get(0).eventName);
+            assertEquals("new", model.getEventsList().get(1999).eventName);
+            file.delete();
+        }
+
+        @org.junit.Test
+        public void testFindConflicts() {
+            EventModel model = new EventModel("testEventModelConflicts.se");
+            // 20 minutes of travel and 10 of getting ready, so the alarm is at 8:30
+            model.addEvent(new EventWithInfo(null, "Mountain View", "SJSU", "class", "Mountain View", "SJSU",
+                    new GregorianCalendar(2019, 1, 15, 9, 0), CalendarEvent.DRIVING_TYPE, 20 * 60, 10, 3, 0));
+
+            assertEquals(1, model.findConflicts(new GregorianCalendar(2019, 1, 15, 8, 50),
+                    new GregorianCalendar(2019, 1, 15, 9, 20)).size());
+            assertEquals(0, model.findConflicts(new GregorianCalendar(2019, 1, 15, 9, 0),
+                    new GregorianCalendar(2019, 1, 15, 9, 30)).size());
+            model.addEvent(new EventWithInfo(null, "Mountain View", "SJSU", "lab", "Mountain View", "SJSU",
+                    new GregorianCalendar(2019, 1, 15, 9, 40), CalendarEvent.DRIVING_TYPE, 20 * 60, 10, 3, 0));
+            assertEquals("lab", model.findConflicts(new GregorianCalendar(2019, 1, 15, 9, 0),
+                    new GregorianCalendar(2019, 1, 15, 9, 30)).get(0).eventName);
+            model.removeEvents(model.getEventsList().get(1));
+            assertEquals(0, model.findConflicts(new GregorianCalendar(2019, 1, 15, 9, 0),
+                    new GregorianCalendar(2019, 1, 15, 9, 30)).size());
+        }
     }
@@ -0,0 +1,67 @@
+import java.util.List;
+
+/**
+ * Compares the heap used by events kept as objects in MemoryEventStore and as arrays in CompactEventStore.
+ * The heap is measured for the bare store and again through an EventModel read like the scheduled events
+ * window reads it, with its index of windows and a list model showing the first screen of events.
+ * Usage: EventStoreFootprintBenchmark [number of events]
+ */
+public class EventStoreFootprintBenchmark {
+    private final static int SCREEN_ROWS = 20;
+
+    public static void main(String[] args) {
+        int count = args.length >= 1 ? Integer.parseInt(args[0]) : 100000;
+        long[] memoryBytes = measure(new MemoryEventStore(), count);
+        long[] compactBytes = measure(new CompactEventStore(), count);
+        System.out.printf("%d events%n", count);
+        System.out.printf("MemoryEventStore:  store %,d bytes, %,d per event, model %,d bytes, %,d per event%n",
+                memoryBytes[0], memoryBytes[0] / count, memoryBytes[1], memoryBytes[1] / count);
+        System.out.printf("CompactEventStore: store %,d bytes, %,d per event, model %,d bytes, %,d per event%n",
+                compactBytes[0], compactBytes[0] / count, compactBytes[1], compactBytes[1] / count);
+        System.out.printf("store %.1fx smaller, model %.1fx smaller%n", (double) memoryBytes[0] / compactBytes[0],
+                (double) memoryBytes[1] / compactBytes[1]);
+    }
+
+    /**
+     * Fills a store and measures how much the heap grew, then shows the store through a model.
+     *
+     * @param store the empty store
+     * @param count number of events
+     * @return bytes used by the store and bytes used by the store, the model and the list model
+     */
+    private static long[] measure(EventStore store, int count) {
+        long before = usedHeap();
+        List<CalendarEvent> events = EventCodecBenchmark.createEvents(count);
+        for (int i = 0; i < events.size(); i++) {
+            CalendarEvent event = events.get(i);
+            store.put(event.getArrivalDateTime().getTimeInMillis(), event);
+            // the list must not keep the events alive, only the store
+            events.set(i, null);
+        }
+        events = null;
+        long storeBytes = usedHeap() - before;
+        if (store.size() != count) {
+            throw new IllegalStateException("Events were lost");
+        }
+
+        EventModel model = new EventModel(store);
+        model.awaitRestore();
+        DataListModel listModel = new DataListModel(model);
+        for (int i = 0; i < Math.min(SCREEN_ROWS, listModel.getSize()); i++) {
+            listModel.getElementAt(i);
+        }
+        long modelBytes = usedHeap() - before;
+        if (listModel.getSize() != count) {
+            throw new IllegalStateException("Events were lost");
+        }
+        return new long[]{storeBytes, modelBytes};
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for IntervalTree class
+ */
+public class IntervalTreeTest {
+    @org.junit.Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        HashMap<Long, long[]> windows = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            long id = random.nextInt(1000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(windows.remove(id) != null, tree.remove(id));
+            } else {
+                long start = random.nextInt(100000);
+                long end = start + random.nextInt(2000);
+                windows.put(id, new long[]{start, end});
+                tree.put(id, start, end);
+            }
+            if (i % 50 == 0) {
+                long from = random.nextInt(100000);
+                long to = from + random.nextInt(3000);
+                assertEquals(scan(windows, from, to), tree.findOverlapping(from, to));
+            }
+        }
+        assertEquals(windows.size(), tree.size());
+    }
+
+    @org.junit.Test
+    public void testTouchingWindowsDoNotOverlap() {
+        IntervalTree tree = new IntervalTree();
+        tree.put(1, 0, 10);
+        tree.put(2, 10, 20);
+        tree.put(3, 5, 15);
+
+        assertEquals(2, tree.findOverlapping(10, 12).size());
+        assertEquals(3L, (long) tree.findOverlapping(10, 12).get(0));
+        assertEquals(0, tree.findOverlapping(20, 30).size());
+    }
+
+    /**
+     * Finds overlapping windows one by one, sorted like the tree sorts them.
+     */
+    private static List<Long> scan(Map<Long, long[]> windows, long from, long to) {
+        ArrayList<Long> ids = new ArrayList<>();
+        for (Map.Entry<Long, long[]> window : windows.entrySet()) {
+            if (window.getValue()[0] < to && window.getValue()[1] > from) {
+                ids.add(window.getKey());
+            }
+        }
+        ids.sort((a, b) -> {
+            int byStart = Long.compare(windows.get(a)[0], windows.get(b)[0]);
+            return byStart != 0 ? byStart : Long.compare(a, b);
+        });
+        return ids;
+    }
+}
@@ -0,0 +1,164 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedEventStoreTest {
+    private final static String STORE_PATH = "testMappedEventStore.db";
+
+    @Before
+    @After
+    public void deleteFiles() {
+        new File(STORE_PATH).delete();
+        new File(STORE_PATH + ".index").delete();
+    }
+
+    private static CalendarEvent event(int day) {
+        return new EventWithoutInfo("home", "school", "event " + day,
+                new GregorianCalendar(2019, 1, day, 9, 0), CalendarEvent.BIKING_TYPE, 4);
+    }
+
+    private static long key(CalendarEvent event) {
+        return event.getArrivalDateTime().getTimeInMillis();
+    }
+
+    @Test
+    public void testRangeDoesNotChangeWithStore() throws IOException {
+        MappedEventStore store = new MappedEventStore(STORE_PATH, 512);
+        for (int day = 1; day <= 5; day++) {
+            store.put(key(event(day)), event(day));
+        }
+        List<CalendarEvent> range = store.range(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+        store.remove(key(event(1)));
+        store.remove(key(event(2)));
+        // takes a freed slot of a listed event
+        store.put(key(event(20)), event(20));
+
+        assertEquals(5, range.size());
+        assertEquals("event 1", range.get(0).eventName);
+        assertEquals("event 5", range.get(4).eventName);
+        store.close();
+    }
+
+    @Test
+    public void testSortedRangeAndReopen() throws IOException {
+        // small slots so the files have to grow
+        MappedEventStore store = new MappedEventStore(STORE_PATH, 512);
+        for (int day = 28; day >= 1; day--) {
+            store.put(key(event(day)), event(day));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int day = 1; day <= 28; day++) {
+                store.put(key(event(day)) + 60000L * (round + 1), event(day));
+            }
+        }
+        assertEquals(112, store.size());
+        List<CalendarEvent> range = store.range(key(event(5)), key(event(8)), Integer.MAX_VALUE);
+        assertEquals(12, range.size());
+        assertEquals("event 5", range.get(0).eventName);
+        assertEquals("event 7", range.get(11).eventName);
+        assertEquals(2, store.range(key(event(5)), Long.MAX_VALUE, 2).size());
+        store.close();
+
+        MappedEventStore reopened = new MappedEventStore(STORE_PATH);
+        assertEquals(512, reopened.getSlotBytes());
+        assertEquals(112, reopened.size());
+        assertEquals("event 3", reopened.get(key(event(3))).eventName);
+        assertEquals(key(event(3)), key(reopened.get(key(event(3)))));
+        reopened.close();
+    }
+
+    @Test
+    public void testRemoveReusesSlot() throws IOException {
+        MappedEventStore store = new MappedEventStore(STORE_PATH);
+        for (int day = 1; day <= 3; day++) {
+            store.put(key(event(day)), event(day));
+        }
+        assertTrue(store.remove(key(event(2))));
+        assertFalse(store.remove(key(event(2))));
+        assertFalse(store.containsKey(key(event(2))));
+        assertNull(store.get(key(event(2))));
+
+        store.put(key(event(4)), event(4));
+        assertEquals(3, store.getSlotCount());
+        store.put(key(event(4)), event(5));
+        assertEquals("event 5", store.get(key(event(4))).eventName);
+        assertEquals(3, store.size());
+        store.close();
+    }
+
+    @Test
+    public void testEventModelOnMappedStore() throws IOException {
+        MappedEventStore store = new MappedEventStore(STORE_PATH);
+        EventModel model = new EventModel(store);
+        model.addEvent(event(2));
+        model.addEvent(event(1));
+        assertTrue(model.isTimeOccupied(new GregorianCalendar(2019, 1, 1, 9, 0)));
+        assertEquals("event 1", model.getEventsList().get(0).eventName);
+        model.removeEvents(event(1));
+        assertEquals(1, model.getEventsList().size());
+        model.saveEventsToFile();
+        store.close();
+    }
+
+    @Test
+    public void testStoreNotClosedIsRebuilt() throws IOException {
+        MappedEventStore store = new MappedEventStore(STORE_PATH, 512);
+        for (int day = 1; day <= 5; day++) {
+            store.put(key(event(day)), event(day));
+        }
+        store.remove(key(event(2)));
+        store.put(key(event(3)), event(7));
+
+        // opened again as after a crash, the index on disk is the empty one of the new store
+        MappedEventStore reopened = new MappedEventStore(STORE_PATH);
+        assertEquals(4, reopened.size());
+        assertNull(reopened.get(key(event(2))));
+        assertEquals("event 7", reopened.get(key(event(3))).eventName);
+        assertEquals("event 5", reopened.range(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE).get(3).eventName);
+        reopened.put(key(event(8)), event(8));
+        // the free list was rebuilt too, the slot of the replaced event is used again
+        assertEquals(5, reopened.getSlotCount());
+        reopened.close();
+        store.close();
+    }
+
+    @Test
+    public void testMissingIndexIsRebuilt() throws IOException {
+        MappedEventStore store = new MappedEventStore(STORE_PATH);
+        for (int day = 1; day <= 3; day++) {
+            store.put(key(event(day)), event(day));
+        }
+        store.close();
+        new File(STORE_PATH + ".index").delete();
+
+        MappedEventStore reopened = new MappedEventStore(STORE_PATH);
+        assertEquals(3, reopened.size());
+        assertEquals("event 2", reopened.get(key(event(2))).eventName);
+        reopened.close();
+    }
+
+    @Test
+    public void testEventBiggerThanSlotIsNotStored() throws IOException {
+        MappedEventStore store = new MappedEventStore(STORE_PATH, 64);
+        try {
+            store.put(key(event(1)), event(1));
+            fail("the event was stored");
+        } catch (EventNotStoredException e) {
+            // expected
+        }
+        assertEquals(0, store.size());
+        assertEquals(0, store.getSlotCount());
+        store.close();
+    }
+}
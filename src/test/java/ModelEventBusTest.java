@@ -0,0 +1,72 @@
+import javax.swing.SwingUtilities;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for ModelEventBus class
+ */
+public class ModelEventBusTest {
+    @org.junit.Test
+    public void testBurstIsCoalescedOnEventDispatchThread() throws Exception {
+        EventModel model = new EventModel("testModelEventBus.se");
+        CopyOnWriteArrayList<ModelEventBus.ChangeSet> delivered = new CopyOnWriteArrayList<>();
+        model.addListener(ob -> {
+            assertTrue(SwingUtilities.isEventDispatchThread());
+            delivered.add((ModelEventBus.ChangeSet) ob);
+        });
+        for (int minute = 0; minute < 1000; minute++) {
+            model.addEvent(new EventWithoutInfo("home", "school", "event " + minute,
+                    new GregorianCalendar(2019, 1, 1, 0, minute), CalendarEvent.BIKING_TYPE, 4));
+        }
+
+        TreeSet<Long> added = new TreeSet<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (added.size() < 1000 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            added.clear();
+            for (ModelEventBus.ChangeSet changes : delivered) {
+                added.addAll(changes.getAdded());
+            }
+        }
+        assertEquals(1000, added.size());
+        assertTrue(delivered.size() <= 3);
+    }
+
+    @org.junit.Test
+    public void testChangesOfOneEventAreMerged() throws Exception {
+        ModelEventBus bus = new ModelEventBus(ModelEventBus.DEFAULT_INTERVAL_MILLIS);
+        CopyOnWriteArrayList<ModelEventBus.ChangeSet> delivered = new CopyOnWriteArrayList<>();
+        bus.addListener(ob -> delivered.add((ModelEventBus.ChangeSet) ob));
+        // the delivery runs on the event dispatch thread, so it waits until all changes are made
+        SwingUtilities.invokeAndWait(() -> {
+            bus.removed(1);
+            bus.added(1);
+            bus.added(2);
+            bus.removed(2);
+            bus.edited(3);
+            bus.added(4);
+            bus.edited(4);
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (delivered.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, bus.getDeliveryCount());
+        ModelEventBus.ChangeSet changes = delivered.get(0);
+        assertEquals(setOf(4L), changes.getAdded());
+        assertEquals(setOf(), changes.getRemoved());
+        assertEquals(setOf(1L, 3L), changes.getEdited());
+    }
+
+    private static Set<Long> setOf(Long... keys) {
+        return new TreeSet<>(Arrays.asList(keys));
+    }
+}
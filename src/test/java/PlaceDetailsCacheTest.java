@@ -0,0 +1,83 @@
+import com.google.maps.model.PlaceDetails;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for PlaceDetailsCache class
+ */
+public class PlaceDetailsCacheTest {
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("testPlaceCache", ".se");
+        file.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void testDetailsAreSavedAndRestored() {
+        PlaceDetails details = new PlaceDetails();
+        details.placeId = "abc";
+        details.name = "San Jose State University";
+        PlaceDetailsCache cache = new PlaceDetailsCache(file.getPath());
+        cache.put("abc", details);
+        assertEquals(false, file.exists());
+        cache.flush();
+
+        PlaceDetailsCache restored = new PlaceDetailsCache(file.getPath());
+        assertEquals(1, restored.size());
+        assertEquals("San Jose State University", restored.get("abc").name);
+        assertEquals(false, new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testExpiredDetailsAreDropped() {
+        PlaceDetailsCache cache = new PlaceDetailsCache(file.getPath(), 0);
+        cache.put("abc", new PlaceDetails());
+        cache.flush();
+
+        PlaceDetailsCache restored = new PlaceDetailsCache(file.getPath());
+        assertEquals(0, restored.size());
+        assertEquals(true, restored.get("abc") == null);
+        assertEquals(1, restored.getMissCount());
+    }
+
+    @Test
+    public void testBrokenFileGivesEmptyCache() throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+
+        PlaceDetailsCache cache = new PlaceDetailsCache(file.getPath());
+        assertEquals(0, cache.size());
+        cache.put("abc", new PlaceDetails());
+        cache.flush();
+        assertEquals(1, new PlaceDetailsCache(file.getPath()).size());
+    }
+
+    @Test
+    public void testDetailsAreSavedInTheBackground() throws InterruptedException {
+        PlaceDetailsCache cache = new PlaceDetailsCache(file.getPath());
+        cache.put("abc", new PlaceDetails());
+        cache.put("def", new PlaceDetails());
+
+        long deadline = System.currentTimeMillis() + 10 * PlaceDetailsCache.SAVE_DELAY_MILLIS;
+        while (!file.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, new PlaceDetailsCache(file.getPath()).size());
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for Prefetcher and PrefetchRequest classes
+ */
+public class PrefetcherTest {
+    private final static long NOW = new GregorianCalendar(2019, 1, 1, 8, 0).getTimeInMillis();
+
+    @org.junit.Test
+    public void testOnlyCompleteFormsAreLookedUp() {
+        assertTrue(PrefetchRequest.isComplete(input("home", "SJSU", 9, CalendarEvent.DRIVING_TYPE), NOW));
+        assertFalse(PrefetchRequest.isComplete(input(" ", "SJSU", 9, CalendarEvent.DRIVING_TYPE), NOW));
+        assertFalse(PrefetchRequest.isComplete(input("home", "", 9, CalendarEvent.DRIVING_TYPE), NOW));
+        assertFalse(PrefetchRequest.isComplete(input("home", "SJSU", 7, CalendarEvent.DRIVING_TYPE), NOW));
+        assertFalse(PrefetchRequest.isComplete(input("home", "SJSU", 9, null), NOW));
+    }
+
+    @org.junit.Test
+    public void testLookupsStayWithinBudget() throws InterruptedException {
+        // older lookups that have not started are cancelled, only the latest form is sure to be looked up
+        CountDownLatch lastLookup = new CountDownLatch(1);
+        Prefetcher prefetcher = new Prefetcher((origin, destination, travelMode, arrivalTime) -> {
+            if (arrivalTime.get(Calendar.HOUR_OF_DAY) == 11) {
+                lastLookup.countDown();
+            }
+            return null;
+        }, 2);
+
+        assertFalse(prefetcher.prefetch(input("home", "SJSU", 9, null), NOW));
+        assertTrue(prefetcher.prefetch(input("home", "SJSU", 9, CalendarEvent.DRIVING_TYPE), NOW));
+        assertFalse(prefetcher.prefetch(input("home", "SJSU", 9, CalendarEvent.DRIVING_TYPE), NOW));
+        assertTrue(prefetcher.prefetch(input("home", "SJSU", 10, CalendarEvent.DRIVING_TYPE), NOW));
+        assertFalse(prefetcher.prefetch(input("home", "SJSU", 11, CalendarEvent.DRIVING_TYPE), NOW + 1000));
+        assertTrue(prefetcher.prefetch(input("home", "SJSU", 11, CalendarEvent.DRIVING_TYPE), NOW + 60 * 1000));
+
+        assertEquals(3, prefetcher.getPrefetchCount());
+        assertEquals(1, prefetcher.getOverBudgetCount());
+        assertTrue(lastLookup.await(5, TimeUnit.SECONDS));
+    }
+
+    @org.junit.Test
+    public void testFailedLookupDoesNotStopPrefetcher() throws InterruptedException {
+        CountDownLatch lookups = new CountDownLatch(2);
+        Prefetcher prefetcher = new Prefetcher((origin, destination, travelMode, arrivalTime) -> {
+            lookups.countDown();
+            throw new MapDataUnavailableException(new java.io.IOException("offline"));
+        });
+
+        prefetcher.prefetch(input("home", "SJSU", 9, CalendarEvent.DRIVING_TYPE), NOW);
+        // the first lookup must start before the next form, or the next form cancels it
+        while (lookups.getCount() == 2) {
+            Thread.sleep(5);
+        }
+        prefetcher.prefetch(input("home", "SJSU", 10, CalendarEvent.DRIVING_TYPE), NOW);
+        assertTrue(lookups.await(5, TimeUnit.SECONDS));
+    }
+
+    private static RawUserInput input(String from, String to, int hour, String transport) {
+        return new RawUserInput(from, to, "class", new GregorianCalendar(2019, 1, 1, hour, 0), transport, 3);
+    }
+}
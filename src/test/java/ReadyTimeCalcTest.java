@@ -18,13 +18,11 @@ public class ReadyTimeCalcTest {
         CalendarEvent event = null;
         try {
             Method privateMethod = ReadyTimeCalc.class.getDeclaredMethod("createEventType",
-                    boolean.class,String.class, String.class,String.class,
-                    String.class,String.class,GregorianCalendar.class,String.class,
-                    int.class,int.class,double.class,double.class);
+                    RouteInfo.class, RawUserInput.class);
             privateMethod.setAccessible(true);
-            event = (CalendarEvent) privateMethod.invoke(calc, false, "testing","testing",
-                    "testing event", "testing","testing", new GregorianCalendar(2019,1,15),
-                    "BIKING",15, 1,4,0.0);
+            RawUserInput input = new RawUserInput("testing","testing",
+                    "testing event", new GregorianCalendar(2019,1,15),"BIKING",4);
+            event = (CalendarEvent) privateMethod.invoke(calc, null, input);
         } catch (ReflectiveOperationException x) {
             x.printStackTrace();
         }
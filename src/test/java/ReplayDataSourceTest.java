@@ -0,0 +1,80 @@
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for RecordingDataSource and ReplayDataSource classes
+ */
+public class ReplayDataSourceTest {
+    @org.junit.Test
+    public void testReplayRecordedTrips() throws IOException {
+        File corpus = File.createTempFile("trips", ".jsonl");
+        corpus.deleteOnExit();
+        HashMap<String, Long> modeDurations = new HashMap<>();
+        modeDurations.put("WALKING", 18000L);
+        MapDataSource slowSource = (origin, destination, travelMode, arrivalTime) -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return null;
+            }
+            return new RouteInfo(origin, destination, 1200, 17, 4.5f, origin + ", CA, USA",
+                    destination + ", CA, USA", new GooglePlaceInfo("origin-id", "destination-id",
+                    new String[]{"Monday: 7:00 AM to 10:00 PM"}, "1", "university", 4.5f), modeDurations);
+        };
+        RecordingDataSource recorder = new RecordingDataSource(slowSource, corpus.getPath());
+        GregorianCalendar arrival = new GregorianCalendar(2018, 11, 10, 10, 30);
+        recorder.requestMapData("Mountain View", "SJSU", "DRIVING", arrival);
+        recorder.close();
+        assertEquals(1, recorder.getRecordCount());
+
+        ReplayDataSource replay = new ReplayDataSource(corpus.getPath(), false);
+        assertEquals(1, replay.size());
+        RouteInfo info = replay.requestMapData("mountain view", "SJSU", "DRIVING",
+                new GregorianCalendar(2018, 11, 10, 10, 45));
+        assertEquals(1200, info.getDurationSec());
+        assertEquals("SJSU, CA, USA", info.getEndAddress());
+        assertEquals("destination-id", info.getGooglePlaceInfo().getDestinationID());
+        assertEquals(Long.valueOf(18000), info.getModeDurations().get("WALKING"));
+        assertEquals(null, replay.requestMapData("Mountain View", "SJSU", "WALKING", arrival));
+        assertEquals(1, replay.getHitCount());
+        assertEquals(1, replay.getMissCount());
+
+        ReplayDataSource slowReplay = new ReplayDataSource(corpus.getPath(), true);
+        long start = System.currentTimeMillis();
+        slowReplay.requestMapData("Mountain View", "SJSU", "DRIVING", arrival);
+        assertTrue(System.currentTimeMillis() - start >= 100);
+    }
+
+    @org.junit.Test
+    public void testEveryLatencyOfATripIsReplayed() throws IOException {
+        File corpus = File.createTempFile("trips", ".jsonl");
+        corpus.deleteOnExit();
+        GregorianCalendar arrival = new GregorianCalendar(2018, 11, 10, 10, 30);
+        RouteInfo info = new RouteInfo("Mountain View", "SJSU", 1200, 17, 0, "Mountain View", "SJSU", null);
+        Gson gson = new Gson();
+        try (Writer writer = new FileWriter(corpus)) {
+            writer.write(gson.toJson(new RecordingDataSource.Recording("Mountain View", "SJSU", "DRIVING",
+                    arrival.getTimeInMillis(), 300, info)) + "\n");
+            writer.write(gson.toJson(new RecordingDataSource.Recording("Mountain View", "SJSU", "DRIVING",
+                    arrival.getTimeInMillis(), 0, info)) + "\n");
+        }
+
+        ReplayDataSource replay = new ReplayDataSource(corpus.getPath(), true);
+        assertEquals(1, replay.size());
+        long start = System.currentTimeMillis();
+        replay.requestMapData("Mountain View", "SJSU", "DRIVING", arrival);
+        assertTrue(System.currentTimeMillis() - start >= 300);
+        start = System.currentTimeMillis();
+        replay.requestMapData("Mountain View", "SJSU", "DRIVING", arrival);
+        assertTrue(System.currentTimeMillis() - start < 300);
+    }
+}
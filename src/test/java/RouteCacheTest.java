@@ -0,0 +1,52 @@
+import com.google.maps.model.DirectionsResult;
+
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for RouteCache class
+ */
+public class RouteCacheTest {
+    @org.junit.Test
+    public void testSameTripSameKey() {
+        String key = RouteCache.createKey(" Mountain View,  CA", "San Jose State University", "DRIVING",
+                new GregorianCalendar(2019, 1, 15, 9, 0));
+        String otherKey = RouteCache.createKey("mountain view, ca", "SAN JOSE STATE UNIVERSITY", "DRIVING",
+                new GregorianCalendar(2019, 1, 22, 9, 45));
+        assertEquals(key, otherKey);
+    }
+
+    @org.junit.Test
+    public void testPlaceIdKeepsCase() {
+        GregorianCalendar arrival = new GregorianCalendar(2019, 1, 15, 9, 0);
+        String key = RouteCache.createKey(AddressIndex.PLACE_ID_PREFIX + "ChIJabc", "San Jose", "DRIVING",
+                arrival);
+        String otherKey = RouteCache.createKey(AddressIndex.PLACE_ID_PREFIX + "ChIJABC", "San Jose", "DRIVING",
+                arrival);
+        assertEquals(false, key.equals(otherKey));
+        assertEquals(true, key.startsWith(AddressIndex.PLACE_ID_PREFIX + "ChIJabc|"));
+    }
+
+    @org.junit.Test
+    public void testLeastRecentlyUsedEviction() {
+        RouteCache cache = new RouteCache(2, RouteCache.DEFAULT_TTL_MIN);
+        cache.put("a", new DirectionsResult());
+        cache.put("b", new DirectionsResult());
+        cache.get("a");
+        cache.put("c", new DirectionsResult());
+
+        assertEquals(true, cache.get("a") != null);
+        assertEquals(true, cache.get("b") == null);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @org.junit.Test
+    public void testExpiredRoute() {
+        RouteCache cache = new RouteCache(2, 0);
+        cache.put("a", new DirectionsResult());
+        assertEquals(true, cache.get("a") == null);
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for SlotIndex class
+ */
+public class SlotIndexTest {
+    @org.junit.Test
+    public void testMatchesSortedMap() {
+        Random random = new Random(42);
+        SlotIndex index = new SlotIndex();
+        TreeMap<Long, Integer> entries = new TreeMap<>();
+        // enough keys for many chunks to split and empty again
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(8000);
+            if (random.nextInt(3) == 0) {
+                Integer slot = entries.remove(key);
+                assertEquals(slot == null ? SlotIndex.NONE : slot, index.remove(key));
+            } else {
+                Integer slot = entries.put(key, i);
+                assertEquals(slot == null ? SlotIndex.NONE : slot, index.put(key, i));
+            }
+            if (i % 100 == 0) {
+                long from = random.nextInt(8000);
+                long to = from + random.nextInt(1000);
+                int limit = random.nextInt(400) + 1;
+                NavigableMap<Long, Integer> range = entries.subMap(from, true, to, false);
+                int[] slots = index.slotsBetween(from, to, limit);
+                assertEquals(Math.min(limit, range.size()), slots.length);
+                int at = 0;
+                for (Map.Entry<Long, Integer> entry : range.entrySet()) {
+                    if (at == slots.length) {
+                        break;
+                    }
+                    assertEquals((int) entry.getValue(), slots[at++]);
+                }
+            }
+        }
+        assertEquals(entries.size(), index.size());
+        long[] keys = index.keys();
+        int at = 0;
+        for (long key : entries.keySet()) {
+            assertEquals(key, keys[at++]);
+            assertEquals((int) entries.get(key), index.get(key));
+        }
+        assertEquals(SlotIndex.NONE, index.get(-1));
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit test for StringPool class
+ */
+public class StringPoolTest {
+    @org.junit.Test
+    public void testIntern() {
+        String first = new String("San Jose State University");
+        String second = new String("San Jose State University");
+        assertSame(StringPool.intern(first), StringPool.intern(second));
+        assertNull(StringPool.intern(null));
+
+        String[] periods = StringPool.internAll(new String[]{new String("Monday: Closed"), null});
+        assertSame(StringPool.intern(new String("Monday: Closed")), periods[0]);
+        assertNull(periods[1]);
+    }
+
+    @org.junit.Test
+    public void testDecodedEventsShareStrings() throws IOException {
+        CalendarEvent morning = new EventWithoutInfo(new String("home"), new String("work"), "standup",
+                new GregorianCalendar(2019, 1, 16, 9, 0), CalendarEvent.DRIVING_TYPE, 2);
+        CalendarEvent evening = new EventWithoutInfo(new String("home"), new String("work"), "review",
+                new GregorianCalendar(2019, 1, 16, 17, 0), CalendarEvent.DRIVING_TYPE, 2);
+
+        // each event is decoded from its own buffer, so only the pool can make them share
+        List<CalendarEvent> first = EventCodec.decode(EventCodec.encode(Arrays.asList(morning)));
+        List<CalendarEvent> second = EventCodec.decode(EventCodec.encode(Arrays.asList(evening)));
+
+        assertEquals("home", first.get(0).addressFrom);
+        assertSame(first.get(0).addressFrom, second.get(0).addressFrom);
+        assertSame(first.get(0).addressTo, second.get(0).addressTo);
+    }
+
+    @org.junit.Test
+    public void testRouteInfoSharesStrings() {
+        RouteInfo first = new RouteInfo(new String("Mountain View"), new String("SJSU"), 600, 17, 4,
+                new String("Mountain View, CA"), new String("1 Washington Sq"), new GooglePlaceInfo(
+                new String("origin-id"), new String("destination-id"), new String[]{"Monday: Closed"}, "1",
+                "university", 4.5f));
+        RouteInfo second = new RouteInfo(new String("Mountain View"), new String("SJSU"), 900, 17, 4,
+                new String("Mountain View, CA"), new String("1 Washington Sq"), new GooglePlaceInfo(
+                new String("origin-id"), new String("destination-id"), new String[]{"Monday: Closed"}, "1",
+                "university", 4.5f));
+
+        assertSame(first.getOriginName(), second.getOriginName());
+        assertSame(first.getEndAddress(), second.getEndAddress());
+        assertSame(first.getGooglePlaceInfo().getDestinationID(), second.getGooglePlaceInfo().getDestinationID());
+        assertSame(first.getGooglePlaceInfo().getOpenPeriod()[0], second.getGooglePlaceInfo().getOpenPeriod()[0]);
+    }
+}
@@ -0,0 +1,89 @@
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for TravelTimeRefresher class
+ */
+public class TravelTimeRefresherTest {
+    @org.junit.Test
+    public void testIntervalGrowsWithTimeToArrival() {
+        long minute = 60 * 1000;
+        assertTrue(TravelTimeRefresher.getInterval(30 * minute) < TravelTimeRefresher.getInterval(3 * 60 * minute));
+        assertTrue(TravelTimeRefresher.getInterval(3 * 60 * minute)
+                < TravelTimeRefresher.getInterval(5 * 24 * 60 * minute));
+    }
+
+    @org.junit.Test
+    public void testBudgetAndThreshold() throws InterruptedException, InvocationTargetException {
+        GregorianCalendar now = new GregorianCalendar(2019, 1, 15, 8, 0);
+        EventModel model = new EventModel("testTravelTimeRefresher.se");
+        EventWithInfo soon = createEvent("soon", now, 30);
+        EventWithInfo later = createEvent("later", now, 3 * 60);
+        EventWithInfo nextWeek = createEvent("next week", now, 5 * 24 * 60);
+        model.addEvent(soon);
+        model.addEvent(later);
+        model.addEvent(nextWeek);
+        GregorianCalendar soonAlarm = soon.getAlarmTime();
+        GregorianCalendar laterAlarm = later.getAlarmTime();
+
+        AtomicInteger callCount = new AtomicInteger();
+        // traffic doubles the trip to the first event and barely changes the others
+        TravelTimeSource dataSource = (origin, destination, travelMode, departureTime) -> {
+            callCount.incrementAndGet();
+            assertTrue(departureTime.getTimeInMillis() >= now.getTimeInMillis());
+            return departureTime.getTimeInMillis() < now.getTimeInMillis() + 60 * 60 * 1000 ? 40 * 60 : 22 * 60;
+        };
+        TravelTimeRefresher refresher = new TravelTimeRefresher(model, dataSource, 2, 5);
+
+        assertEquals(2, refresher.refresh(now.getTimeInMillis()));
+        SwingUtilities.invokeAndWait(() -> { });
+        soonAlarm.add(Calendar.MINUTE, -20);
+        assertEquals(soonAlarm, model.getEventsList().get(0).getAlarmTime());
+        assertEquals(laterAlarm, model.getEventsList().get(1).getAlarmTime());
+        assertEquals(1, refresher.getMovedCount());
+
+        assertEquals(1, refresher.refresh(now.getTimeInMillis()));
+        assertEquals(0, refresher.refresh(now.getTimeInMillis() + 60 * 1000));
+        assertEquals(1, refresher.refresh(now.getTimeInMillis() + 11 * 60 * 1000));
+        assertEquals(4, callCount.get());
+    }
+
+    @org.junit.Test
+    public void testUnavailableSourceEndsTheTick() {
+        GregorianCalendar now = new GregorianCalendar(2019, 1, 15, 8, 0);
+        EventModel model = new EventModel("testTravelTimeRefresherUnavailable.se");
+        model.addEvent(createEvent("soon", now, 30));
+        model.addEvent(createEvent("later", now, 3 * 60));
+        AtomicInteger callCount = new AtomicInteger();
+        TravelTimeSource dataSource = (origin, destination, travelMode, departureTime) -> {
+            callCount.incrementAndGet();
+            throw new MapDataUnavailableException(new IOException("offline"));
+        };
+        TravelTimeRefresher refresher = new TravelTimeRefresher(model, dataSource, 2, 5);
+
+        assertEquals(1, refresher.refresh(now.getTimeInMillis()));
+        assertEquals(1, callCount.get());
+    }
+
+    /**
+     * Creates an event with a 20 minute drive.
+     *
+     * @param name       name of the event
+     * @param now        current time
+     * @param minLater   minutes from now until the event
+     * @return the event
+     */
+    private EventWithInfo createEvent(String name, GregorianCalendar now, int minLater) {
+        GregorianCalendar arrival = (GregorianCalendar) now.clone();
+        arrival.add(Calendar.MINUTE, minLater);
+        return new EventWithInfo(null, "Mountain View", "SJSU", name, "Mountain View", "SJSU", arrival,
+                CalendarEvent.DRIVING_TYPE, 20 * 60, 10, 3, 0);
+    }
+}